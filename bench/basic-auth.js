@@ -0,0 +1,44 @@
+import http from 'k6/http';
+import encoding from 'k6/encoding';
+import {check} from 'k6';
+import {AUTH, BASE_URL, seedUsers} from './seed.js';
+
+// Стоимость HTTP Basic: один и тот же закэшированный GET /users/{id}, поэтому время запроса
+// определяется проверкой пароля. Сценарий wrong проверяет, что неверный пароль по-прежнему стоит полный BCrypt.
+export const options = {
+    scenarios: {
+        valid: {
+            executor: 'constant-vus',
+            exec: 'valid',
+            vus: parseInt(__ENV.VUS || '50'),
+            duration: __ENV.DURATION || '1m',
+        },
+        wrong: {
+            executor: 'constant-vus',
+            exec: 'wrong',
+            vus: 5,
+            duration: __ENV.DURATION || '1m',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(99)', 'p(99.9)', 'max'],
+};
+
+const WRONG = {
+    headers: {'Authorization': 'Basic ' + encoding.b64encode('admin:wrong-password')},
+};
+
+export function setup() {
+    return {id: seedUsers()[0]};
+}
+
+export function valid(data) {
+    const response = http.get(`${BASE_URL}/users/${data.id}`, Object.assign({tags: {name: 'valid'}}, AUTH));
+
+    check(response, {'valid 200': (r) => r.status === 200});
+}
+
+export function wrong(data) {
+    const response = http.get(`${BASE_URL}/users/${data.id}`, Object.assign({tags: {name: 'wrong'}}, WRONG));
+
+    check(response, {'wrong 401': (r) => r.status === 401});
+}
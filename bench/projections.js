@@ -0,0 +1,32 @@
+import http from 'k6/http';
+import {check} from 'k6';
+import {AUTH, BASE_URL, seedUsers} from './seed.js';
+
+// Чтения, которые идут в базу данных: GET /users/{id} (кэш users отключается при запуске),
+// страницы GET /users и поиск GET /users/search.
+export const options = {
+    scenarios: {
+        reads: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '50'),
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(99)', 'p(99.9)', 'max'],
+};
+
+export function setup() {
+    return {ids: seedUsers()};
+}
+
+export default function (data) {
+    const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+    const user = http.get(`${BASE_URL}/users/${id}`, Object.assign({tags: {name: 'user'}}, AUTH));
+    const page = http.get(`${BASE_URL}/users?limit=500`, Object.assign({tags: {name: 'page'}}, AUTH));
+    const search = http.get(`${BASE_URL}/users/search?lastname=Last1&limit=500`,
+        Object.assign({tags: {name: 'search'}}, AUTH));
+
+    check(user, {'user 200': (r) => r.status === 200});
+    check(page, {'page 200': (r) => r.status === 200});
+    check(search, {'search 200': (r) => r.status === 200});
+}
@@ -0,0 +1,35 @@
+import http from 'k6/http';
+import encoding from 'k6/encoding';
+
+export const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+export const AUTH = {
+    headers: {
+        'Authorization': 'Basic ' + encoding.b64encode(`${__ENV.USER || 'admin'}:${__ENV.PASSWORD || 'admin'}`),
+        'Content-Type': 'application/json',
+    },
+};
+
+// Создает USERS пользователей одним POST /users/batch на каждые 1000 и возвращает их id.
+export function seedUsers() {
+    const count = parseInt(__ENV.USERS || '10000');
+    const ids = [];
+
+    for (let offset = 0; offset < count; offset += 1000) {
+        const users = [];
+
+        for (let i = offset; i < Math.min(offset + 1000, count); i++) {
+            users.push({firstname: `First${i}`, lastname: `Last${i}`, surname: `Sur${i}`, birthday: '1990-01-14'});
+        }
+
+        const response = http.post(`${BASE_URL}/users/batch`, JSON.stringify(users), AUTH);
+
+        if (response.status !== 201) {
+            throw new Error(`Seeding failed: ${response.status} ${response.body}`);
+        }
+
+        response.json().forEach((id) => ids.push(id));
+    }
+
+    return ids;
+}
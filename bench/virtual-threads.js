@@ -0,0 +1,29 @@
+import http from 'k6/http';
+import {check} from 'k6';
+import {AUTH, BASE_URL, seedUsers} from './seed.js';
+
+// Нагрузка на блокирующие пути: страницы GET /users (всегда база данных) и GET /users/{id}.
+// Число одновременных клиентов (VUS) специально больше server.tomcat.threads.max (200 по умолчанию).
+export const options = {
+    scenarios: {
+        reads: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '800'),
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(99)', 'p(99.9)', 'max'],
+};
+
+export function setup() {
+    return {ids: seedUsers()};
+}
+
+export default function (data) {
+    const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+    const page = http.get(`${BASE_URL}/users?limit=50`, Object.assign({tags: {name: 'page'}}, AUTH));
+    const user = http.get(`${BASE_URL}/users/${id}`, Object.assign({tags: {name: 'user'}}, AUTH));
+
+    check(page, {'page 200': (r) => r.status === 200});
+    check(user, {'user 200': (r) => r.status === 200});
+}
@@ -1,5 +1,6 @@
 package com.heydancer.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -26,4 +27,7 @@ public class FullUserDTO {
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private String phoneNumber;
+
+    @JsonIgnore
+    private Long version;
 }
@@ -0,0 +1,28 @@
+package com.heydancer.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChangeDTO {
+    private long userId;
+    private long version;
+    private boolean deleted;
+    private String firstname;
+    private String lastname;
+    private String surname;
+    private LocalDate birthday;
+    private String email;
+    private String phoneNumber;
+}
@@ -0,0 +1,19 @@
+package com.heydancer.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserChangePageDTO {
+    private List<UserChangeDTO> changes;
+    private String nextCursor;
+}
@@ -1,5 +1,6 @@
 package com.heydancer.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -28,4 +29,7 @@ public class UserContactDTO {
     @NotNull(message = "Phone number cannot be null")
     @Size(max = 20, message = "Length of the phone number should not exceed 20 characters")
     private String phoneNumber;
+
+    @JsonIgnore
+    private Long version;
 }
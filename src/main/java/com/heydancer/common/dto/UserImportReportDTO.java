@@ -0,0 +1,23 @@
+package com.heydancer.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportReportDTO {
+    private long total;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    private List<UserImportErrorDTO> errors;
+}
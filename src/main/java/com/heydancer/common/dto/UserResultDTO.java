@@ -0,0 +1,27 @@
+package com.heydancer.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserResultDTO {
+    private long id;
+    private boolean found;
+    private String firstname;
+    private String lastname;
+    private String surname;
+    private LocalDate birthday;
+    private String email;
+    private String phoneNumber;
+}
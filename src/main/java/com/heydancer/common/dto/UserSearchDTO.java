@@ -0,0 +1,35 @@
+package com.heydancer.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSearchDTO {
+    private String firstname;
+    private String lastname;
+    private String surname;
+
+    @Builder.Default
+    private MatchMode match = MatchMode.PREFIX;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate birthdayFrom;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate birthdayTo;
+
+    public enum MatchMode {
+        PREFIX,
+        CONTAINS
+    }
+}
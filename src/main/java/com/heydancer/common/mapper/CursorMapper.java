@@ -0,0 +1,48 @@
+package com.heydancer.common.mapper;
+
+import com.heydancer.exception.ForbiddenException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*Класс CursorMapper преобразует позицию последней записи страницы (id или пару значений) в непрозрачный курсор и обратно.*/
+@Component
+public class CursorMapper {
+    private static final String SEPARATOR = ".";
+
+    public String encode(long id) {
+        return encodeText(Long.toString(id));
+    }
+
+    public String encode(long first, long second) {
+        return encodeText(first + SEPARATOR + second);
+    }
+
+    public long decode(String cursor) {
+        try {
+            return Long.parseLong(decodeText(cursor));
+        } catch (IllegalArgumentException e) {
+            throw new ForbiddenException("Invalid cursor");
+        }
+    }
+
+    public long[] decodePair(String cursor) {
+        try {
+            String text = decodeText(cursor);
+            int separator = text.indexOf(SEPARATOR);
+
+            return new long[]{Long.parseLong(text.substring(0, separator)), Long.parseLong(text.substring(separator + 1))};
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ForbiddenException("Invalid cursor");
+        }
+    }
+
+    private String encodeText(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String decodeText(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+    }
+}
@@ -2,19 +2,18 @@ package com.heydancer.common.mapper;
 
 import com.heydancer.common.dto.ImageDTO;
 import com.heydancer.common.model.Image;
+import com.heydancer.storage.StoredContent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-
 @Component
 public class ImageMapper {
-    public Image toModel(MultipartFile file) throws IOException {
+    public Image toModel(MultipartFile file, StoredContent content) {
         return Image.builder()
                 .originalFileName(file.getOriginalFilename())
                 .contentType(file.getContentType())
-                .size(file.getSize())
-                .bytes(file.getBytes())
+                .size(content.getSize())
+                .storageKey(content.getKey())
                 .build();
     }
 
@@ -2,14 +2,22 @@ package com.heydancer.common.mapper;
 
 import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.ShortUserDTO;
+import com.heydancer.common.dto.UserContactDTO;
+import com.heydancer.common.dto.UserResultDTO;
 import com.heydancer.common.model.User;
+import com.heydancer.exception.ForbiddenException;
+import com.heydancer.repository.projection.ShortUserView;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Component
 public class UserMapper {
+    private static final Pattern NOT_DIGITS = Pattern.compile("\\D");
+
     public User toModel(ShortUserDTO userDTO) {
         return User.builder()
                 .firstName(userDTO.getFirstname())
@@ -19,6 +27,40 @@ public class UserMapper {
                 .build();
     }
 
+    public User toModel(FullUserDTO userDTO) {
+        return User.builder()
+                .firstName(userDTO.getFirstname())
+                .lastName(userDTO.getLastname())
+                .surname(userDTO.getSurname())
+                .birthday(userDTO.getBirthday())
+                .email(normalizeEmail(userDTO.getEmail()))
+                .phoneNumber(normalizePhoneNumber(userDTO.getPhoneNumber()))
+                .build();
+    }
+
+    /*Метод normalizeEmail() приводит email к виду, в котором он хранится и ищется: без пробелов по краям
+    и в нижнем регистре.*/
+    public String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /*Метод normalizePhoneNumber() приводит номер телефона к каноническому виду: только цифры
+    и "+" в начале, если он был указан. "+7 (999) 222-11-11" хранится как "+79992221111".
+    Номер без цифр отклоняется ForbiddenException, чтобы пустые значения не попадали под уникальный индекс.*/
+    public String normalizePhoneNumber(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+
+        String digits = NOT_DIGITS.matcher(phoneNumber).replaceAll("");
+
+        if (digits.isEmpty()) {
+            throw new ForbiddenException("Phone number must contain digits");
+        }
+
+        return phoneNumber.trim().startsWith("+") ? "+" + digits : digits;
+    }
+
     public FullUserDTO toFullDTO(User user) {
         return FullUserDTO.builder()
                 .id(user.getId())
@@ -28,6 +70,7 @@ public class UserMapper {
                 .birthday(user.getBirthday())
                 .email(user.getEmail())
                 .phoneNumber(user.getPhoneNumber())
+                .version(user.getVersion())
                 .build();
     }
 
@@ -40,7 +83,56 @@ public class UserMapper {
                 .build();
     }
 
-    public List<ShortUserDTO> toDTOList(List<User> users) {
+    public ShortUserDTO toShortDTO(FullUserDTO user) {
+        return ShortUserDTO.builder()
+                .firstname(user.getFirstname())
+                .lastname(user.getLastname())
+                .surname(user.getSurname())
+                .birthday(user.getBirthday())
+                .build();
+    }
+
+    public UserContactDTO toContactDTO(FullUserDTO user) {
+        if (user.getEmail() == null && user.getPhoneNumber() == null) {
+            return null;
+        }
+
+        return UserContactDTO.builder()
+                .email(user.getEmail())
+                .phoneNumber(user.getPhoneNumber())
+                .build();
+    }
+
+    public UserResultDTO toResultDTO(FullUserDTO user, boolean withContacts) {
+        return UserResultDTO.builder()
+                .id(user.getId())
+                .found(true)
+                .firstname(user.getFirstname())
+                .lastname(user.getLastname())
+                .surname(user.getSurname())
+                .birthday(user.getBirthday())
+                .email(withContacts ? user.getEmail() : null)
+                .phoneNumber(withContacts ? user.getPhoneNumber() : null)
+                .build();
+    }
+
+    public UserResultDTO toNotFoundResultDTO(long userId) {
+        return UserResultDTO.builder()
+                .id(userId)
+                .found(false)
+                .build();
+    }
+
+    public ShortUserDTO toShortDTO(ShortUserView user) {
+        return ShortUserDTO.builder()
+                .firstname(user.getFirstName())
+                .lastname(user.getLastName())
+                .surname(user.getSurname())
+                .birthday(user.getBirthday())
+                .build();
+    }
+
+    public List<ShortUserDTO> toDTOList(List<ShortUserView> users) {
         return users.stream()
                 .map(this::toShortDTO)
                 .collect(Collectors.toList());
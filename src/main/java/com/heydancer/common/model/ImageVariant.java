@@ -0,0 +1,28 @@
+package com.heydancer.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Embeddable
+public class ImageVariant {
+    @Column(name = "storage_key", length = 64)
+    private String storageKey;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
@@ -0,0 +1,36 @@
+package com.heydancer.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_change", indexes = @Index(name = "user_change_version_idx", columnList = "version, user_id"))
+public class UserChange {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "deleted", nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
@@ -0,0 +1,50 @@
+package com.heydancer.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/*Кэш users хранит FullUserDTO по id пользователя. Менеджер обернут в TransactionAwareCacheManagerProxy:
+put и evict внутри транзакции выполняются только после ее коммита, поэтому читатели не видят незакоммиченные данные.
+Размер, время жизни и сбор статистики задаются спецификацией Caffeine в users.cache.spec.
+Кэш users обернут в UserCache: удаление повторяется через users.cache.evict-delay,
+а значение с меньшей версией не заменяет более новое.
+Кэш contactMisses хранит только отрицательные результаты поиска по контактам (GET /contacts/lookup)
+со своей спецификацией contacts.lookup.miss-cache.spec: короткое время жизни ограничивает устаревание,
+если контакт появился в обход ContactService (например, при импорте).*/
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+    public static final String CONTACT_MISSES_CACHE = "contactMisses";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${users.cache.spec}") String spec,
+                                     @Value("${users.cache.evict-delay}") Duration evictDelay,
+                                     @Value("${contacts.lookup.miss-cache.spec}") String missSpec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                                               com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return USERS_CACHE.equals(name)
+                        ? new UserCache(name, cache, isAllowNullValues(), evictDelay)
+                        : super.adaptCaffeineCache(name, cache);
+            }
+        };
+        cacheManager.setCacheNames(List.of(USERS_CACHE));
+        cacheManager.setCacheSpecification(spec);
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(CONTACT_MISSES_CACHE, Caffeine.from(missSpec).build());
+
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,80 @@
+package com.heydancer.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/*Класс CachingPasswordEncoder запоминает успешные проверки пароля, чтобы HTTP Basic без сессий
+не выполнял BCrypt на каждый запрос. Ключ кэша - HMAC-SHA256 от хеша пароля и введенного пароля
+на случайном ключе процесса, поэтому ни пароль, ни пригодный для перебора хеш в памяти не хранятся.
+Хеш пароля входит в ключ: после смены пароля старые записи больше не совпадают. Размер и время жизни
+записей задаются спецификацией Caffeine. Неуспешные проверки не кэшируются и всегда стоят полного BCrypt.*/
+class CachingPasswordEncoder implements PasswordEncoder {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int KEY_SIZE = 32;
+
+    private final PasswordEncoder delegate;
+    private final SecretKeySpec key;
+    private final Cache<String, Boolean> verified;
+
+    CachingPasswordEncoder(PasswordEncoder delegate, String spec) {
+        byte[] secret = new byte[KEY_SIZE];
+        new SecureRandom().nextBytes(secret);
+
+        this.delegate = delegate;
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.verified = Caffeine.from(spec).build();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+
+        String digest = digest(rawPassword, encodedPassword);
+
+        if (verified.getIfPresent(digest) != null) {
+            return true;
+        }
+
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+
+        if (matches) {
+            verified.put(digest, Boolean.TRUE);
+        }
+
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private String digest(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+
+            return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.toString()
+                    .getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+}
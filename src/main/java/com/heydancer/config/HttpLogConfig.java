@@ -0,0 +1,39 @@
+package com.heydancer.config;
+
+import com.heydancer.logging.AsyncHttpLogWriter;
+import com.heydancer.logging.SamplingStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.DefaultHttpLogWriter;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Strategy;
+
+import java.time.Duration;
+import java.util.List;
+
+/*Production-режим HTTP-логирования (http.log.production=true, включается профилем prod).
+Бины заменяют стратегию и writer Logbook по умолчанию: бинарные тела пропускаются, успешные запросы
+пишутся выборочно с долей http.log.sample-rate, ошибки и запросы не быстрее http.log.slow-threshold
+пишутся всегда, а запись в лог выполняется
+в фоновом потоке через очередь размером http.log.queue-capacity. Размер тела ограничивается
+свойством Logbook logbook.write.max-body-size.*/
+@Configuration
+@ConditionalOnProperty(name = "http.log.production", havingValue = "true")
+public class HttpLogConfig {
+    @Bean
+    public Strategy httpLogStrategy(@Value("${http.log.sample-rate}") double sampleRate,
+                                    @Value("${http.log.slow-threshold}") Duration slowThreshold,
+                                    @Value("${http.log.binary-paths}") List<String> binaryPaths,
+                                    MeterRegistry meterRegistry) {
+        return new SamplingStrategy(sampleRate, slowThreshold, binaryPaths, meterRegistry);
+    }
+
+    @Bean
+    public HttpLogWriter httpLogWriter(@Value("${http.log.queue-capacity}") int queueCapacity,
+                                       MeterRegistry meterRegistry) {
+        return new AsyncHttpLogWriter(new DefaultHttpLogWriter(), queueCapacity, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.heydancer.config;
+
+import com.heydancer.storage.ImageContentCache;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*Метрики сервисов: TimedAspect измеряет методы классов с аннотацией @Timed(SERVICE_TIMER),
+перцентили и гистограммы для них, http.server.requests и пула соединений задаются в application.properties.*/
+@Configuration
+public class MetricsConfig {
+    public static final String SERVICE_TIMER = "service.method";
+    public static final String IMAGE_CONTENT_CACHE = "imageContent";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    /*Попадания, промахи и вытеснения кеша содержимого изображений публикуются стандартными метриками
+    cache.* с тегом cache=imageContent из статистики Caffeine, объем в байтах - отдельной метрикой image.cache.size.*/
+    @Bean
+    public MeterBinder imageContentCacheMetrics(ImageContentCache cache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, cache.getNativeCache(), IMAGE_CONTENT_CACHE);
+            Gauge.builder("image.cache.size", cache, ImageContentCache::getSize)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
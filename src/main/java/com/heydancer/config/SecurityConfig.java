@@ -22,6 +22,8 @@ public class SecurityConfig {
     private String username;
     @Value("${security.password}")
     private String password;
+    @Value("${security.password-cache.spec}")
+    private String passwordCacheSpec;
 
     @Bean
     protected SecurityFilterChain filterChain(final HttpSecurity http) throws Exception {
@@ -37,7 +39,7 @@ public class SecurityConfig {
 
     @Bean
     protected PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new CachingPasswordEncoder(new BCryptPasswordEncoder(), passwordCacheSpec);
     }
 
     @Bean
@@ -0,0 +1,61 @@
+package com.heydancer.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.heydancer.common.dto.FullUserDTO;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/*Класс UserCache - кэш users, который закрывает гонку чтения и инвалидации.
+Читатель, загрузивший строку до коммита писателя, может положить старое значение в кэш уже после
+удаления записи писателем. Поэтому evict() повторяется через evictDelay: к этому времени такие чтения
+завершены, и старое значение не живет до конца TTL. Кроме того, put() не заменяет значение
+с большей версией (@Version) значением с меньшей.
+Класс наследует CaffeineCache, поэтому метрики cache.* для него регистрирует Spring Boot, как и для других кэшей.*/
+class UserCache extends CaffeineCache {
+    private final Executor delayedEvictor;
+
+    UserCache(String name, Cache<Object, Object> cache, boolean allowNullValues, Duration evictDelay) {
+        super(name, cache, allowNullValues);
+        this.delayedEvictor = CompletableFuture.delayedExecutor(evictDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            super.put(key, null);
+            return;
+        }
+
+        getNativeCache().asMap()
+                .merge(key, toStoreValue(value), (current, candidate) -> isOlder(candidate, current) ? current : candidate);
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        delayedEvictor.execute(() -> super.evict(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = super.evictIfPresent(key);
+        delayedEvictor.execute(() -> super.evict(key));
+
+        return present;
+    }
+
+    private boolean isOlder(Object candidate, Object current) {
+        if (!(candidate instanceof FullUserDTO) || !(current instanceof FullUserDTO)) {
+            return false;
+        }
+
+        Long candidateVersion = ((FullUserDTO) candidate).getVersion();
+        Long currentVersion = ((FullUserDTO) current).getVersion();
+
+        return candidateVersion != null && currentVersion != null && candidateVersion < currentVersion;
+    }
+}
@@ -0,0 +1,54 @@
+package com.heydancer.config;
+
+import com.heydancer.config.datasource.ConcurrencyLimitedDataSource;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*Режим выполнения запросов на виртуальных потоках (execution.virtual-threads.enabled=true, нужна Java 21+).
+Tomcat обрабатывает каждый запрос, а вместе с ним и транзакционные вызовы сервисов, в отдельном виртуальном потоке,
+поэтому блокировка на JDBC или медленной передаче файла не занимает поток платформы.
+Число одновременных обращений к базе данных ограничивается ConcurrencyLimitedDataSource.*/
+@Configuration
+@ConditionalOnProperty(name = "execution.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer", e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<AbstractProtocol<?>> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean
+    public static BeanPostProcessor dataSourceConcurrencyLimiter(
+            @Value("${execution.db.max-concurrency}") int maxConcurrency,
+            @Value("${execution.db.acquire-timeout}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource((DataSource) bean, maxConcurrency, acquireTimeout);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
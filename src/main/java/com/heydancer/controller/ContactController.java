@@ -4,13 +4,16 @@ import com.heydancer.common.dto.UserContactDTO;
 import com.heydancer.service.ContactService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
@@ -33,17 +36,24 @@ public class ContactController {
     }
 
     @GetMapping
-    public UserContactDTO getContact(@PathVariable Long userId) {
+    public ResponseEntity<UserContactDTO> getContact(@PathVariable Long userId) {
         log.info("Getting contact. User id: {}", userId);
 
-        return contactService.getByUserId(userId);
+        UserContactDTO contact = contactService.getByUserId(userId);
+
+        return ETags.ok(contact.getVersion()).body(contact);
     }
 
     @PutMapping
-    public UserContactDTO updateContact(@PathVariable Long userId, @Valid @RequestBody UserContactDTO contact) {
-        log.info("Updating contact. User id: {}, contact: {}", userId, contact);
+    public ResponseEntity<UserContactDTO> updateContact(@PathVariable Long userId,
+                                                        @Valid @RequestBody UserContactDTO contact,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                        String ifMatch) {
+        log.info("Updating contact. User id: {}, contact: {}, if-match: {}", userId, contact, ifMatch);
+
+        UserContactDTO updated = contactService.update(userId, contact, ETags.parseIfMatch(ifMatch));
 
-        return contactService.update(userId, contact);
+        return ETags.ok(updated.getVersion()).body(updated);
     }
 
     @DeleteMapping
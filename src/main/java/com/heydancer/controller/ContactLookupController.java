@@ -0,0 +1,26 @@
+package com.heydancer.controller;
+
+import com.heydancer.common.dto.FullUserDTO;
+import com.heydancer.service.ContactService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequestMapping("/contacts")
+@RequiredArgsConstructor
+public class ContactLookupController {
+    private final ContactService contactService;
+
+    @GetMapping("/lookup")
+    public FullUserDTO lookup(@RequestParam(required = false) String email,
+                              @RequestParam(value = "phone", required = false) String phoneNumber) {
+        log.info("Looking up user by contact. Email: {}, phone: {}", email, phoneNumber);
+
+        return contactService.lookup(email, phoneNumber);
+    }
+}
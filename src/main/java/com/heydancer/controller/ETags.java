@@ -0,0 +1,40 @@
+package com.heydancer.controller;
+
+import com.heydancer.exception.PreconditionFailedException;
+import org.springframework.http.ResponseEntity;
+
+/*Класс ETags переводит версию пользователя (@Version) в сильный ETag ответа и обратно из заголовка If-Match.*/
+final class ETags {
+    private static final String ANY = "*";
+
+    private ETags() {
+    }
+
+    /*Метод ok() создает ответ 200 с ETag версии. Для GET Spring сам сравнивает его с If-None-Match
+    и отвечает 304 без тела.*/
+    static ResponseEntity.BodyBuilder ok(Long version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        return version != null ? response.eTag(version.toString()) : response;
+    }
+
+    /*Метод parseIfMatch() возвращает ожидаемую версию из If-Match или null, если заголовка нет или он равен "*".
+    Слабый или нечисловой ETag не может совпасть с версией, поэтому выбрасывается PreconditionFailedException.*/
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must be a strong ETag");
+        }
+
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not match the current version");
+        }
+    }
+}
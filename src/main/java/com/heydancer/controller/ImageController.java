@@ -2,32 +2,54 @@ package com.heydancer.controller;
 
 import com.heydancer.common.dto.ImageDTO;
 import com.heydancer.common.model.Image;
+import com.heydancer.common.model.ImageVariant;
 import com.heydancer.service.ImageService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/users/{userId}/images")
-@RequiredArgsConstructor
 public class ImageController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final ImageService imageService;
+    private final Counter bytesRead;
+
+    public ImageController(ImageService imageService, MeterRegistry meterRegistry) {
+        this.imageService = imageService;
+        this.bytesRead = Counter.builder("image.bytes.read")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -37,16 +59,62 @@ public class ImageController {
         return imageService.add(userId, file);
     }
 
+    /*Метод getImage() отдает содержимое изображения или его уменьшенного варианта (параметр size - требуемая
+    наибольшая сторона в пикселях). ETag - хеш содержимого отдаваемого варианта, Last-Modified - время создания
+    этого варианта (для оригинала - время изменения изображения), поэтому после создания варианта клиент,
+    получивший раньше оригинал, не получит 304. Повторный запрос
+    с If-None-Match/If-Modified-Since получает 304 без чтения файла. Поддерживается один диапазон Range
+    (с учетом If-Range), несколько диапазонов игнорируются и отдается весь файл.*/
     @GetMapping("/{imageId}")
-    public ResponseEntity<?> getImage(@PathVariable Long userId, @PathVariable Long imageId) {
-        log.info("Getting image. User id: {}, image id: {}", userId, imageId);
+    public void getImage(@PathVariable Long userId, @PathVariable Long imageId,
+                         @RequestParam(required = false) Integer size,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("Getting image. User id: {}, image id: {}, size: {}", userId, imageId, size);
 
         Image image = imageService.getById(userId, imageId);
-        return ResponseEntity.ok()
-                .header("fileName", image.getOriginalFileName())
-                .contentType(MediaType.valueOf(image.getContentType()))
-                .contentLength(image.getSize())
-                .body(new InputStreamResource(new ByteArrayInputStream(image.getBytes())));
+        ImageVariant variant = imageService.getVariant(image, size);
+        String eTag = "\"" + variant.getStorageKey() + "\"";
+        long lastModified = variant.getCreatedAt() != null ? variant.getCreatedAt().toEpochMilli() : -1;
+
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+
+        long length = variant.getSize();
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = getRange(request, eTag, lastModified);
+
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+
+            if (start >= length) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        response.setHeader("fileName", image.getOriginalFileName());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(image.getContentType());
+        response.setContentLengthLong(end - start + 1);
+
+        Resource content = imageService.getContent(variant);
+        bytesRead.increment(end - start + 1);
+
+        if (content.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            sendFile(request, content.getFile(), start, end + 1);
+            return;
+        }
+
+        try (InputStream inputStream = content.getInputStream()) {
+            StreamUtils.copyRange(inputStream, response.getOutputStream(), start, end);
+        }
     }
 
     @PutMapping("/{imageId}")
@@ -63,4 +131,47 @@ public class ImageController {
 
         imageService.delete(userId, imageId);
     }
+
+    /*Метод getRange() возвращает запрошенный диапазон, если он один, корректен и If-Range (если передан)
+    совпадает с текущим ETag или датой изменения. Иначе возвращает null и отдается весь файл.*/
+    private HttpRange getRange(HttpServletRequest request, String eTag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        if (rangeHeader == null || !ifRangeMatches(request, eTag, lastModified)) {
+            return null;
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+
+        try {
+            return lastModified >= 0 && request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /*Метод sendFile() передает файл контейнеру сервлетов (Tomcat sendfile): байты диапазона [start, end)
+    копируются ядром из файла прямо в сокет и не попадают в кучу JVM. Тело ответа при этом не пишется.*/
+    private void sendFile(HttpServletRequest request, File file, long start, long end) throws IOException {
+        request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, end);
+    }
 }
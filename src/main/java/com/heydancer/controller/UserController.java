@@ -2,29 +2,51 @@ package com.heydancer.controller;
 
 import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.ShortUserDTO;
+import com.heydancer.common.dto.UserChangeDTO;
+import com.heydancer.common.dto.UserChangePageDTO;
+import com.heydancer.common.dto.UserImportReportDTO;
+import com.heydancer.common.dto.UserPageDTO;
+import com.heydancer.common.dto.UserResultDTO;
+import com.heydancer.common.dto.UserSearchDTO;
+import com.heydancer.service.UserImportService;
 import com.heydancer.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
+@Validated
 public class UserController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
     private final UserService userService;
+    private final UserImportService userImportService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -34,25 +56,92 @@ public class UserController {
         return userService.add(user);
     }
 
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Long> addUsers(@RequestBody @NotEmpty List<@Valid ShortUserDTO> shortUserDTOs) {
+        log.info("Adding {} users", shortUserDTOs.size());
+
+        return userService.addAll(shortUserDTOs);
+    }
+
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public UserImportReportDTO importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                           InputStream body) throws IOException {
+        log.info("Importing users. Content type: {}", contentType);
+
+        UserImportService.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? UserImportService.Format.JSONL
+                : UserImportService.Format.CSV;
+
+        return userImportService.importUsers(body, format);
+    }
+
     @GetMapping("/{userId}")
-    public FullUserDTO getUser(@PathVariable Long userId) {
+    public ResponseEntity<FullUserDTO> getUser(@PathVariable Long userId) {
         log.info("Getting user by id: {}", userId);
 
-        return userService.getById(userId);
+        FullUserDTO user = userService.getById(userId);
+
+        return ETags.ok(user.getVersion()).body(user);
     }
 
     @GetMapping
-    public List<ShortUserDTO> getUsers() {
-        log.info("Getting all users");
+    public ResponseEntity<List<ShortUserDTO>> getUsers(@RequestParam(required = false) String after,
+                                                       @RequestParam(required = false) Integer limit) {
+        log.info("Getting users. After: {}, limit: {}", after, limit);
+
+        return toResponse(userService.getAll(after, limit));
+    }
+
+    @GetMapping(params = "ids")
+    public List<UserResultDTO> getUsersByIds(@RequestParam List<Long> ids,
+                                             @RequestParam(defaultValue = "false") boolean contacts) {
+        log.info("Getting users by ids. Count: {}, contacts: {}", ids.size(), contacts);
+
+        return userService.getAllById(ids, contacts);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ShortUserDTO>> searchUsers(UserSearchDTO search,
+                                                          @RequestParam(required = false) String after,
+                                                          @RequestParam(required = false) Integer limit) {
+        log.info("Searching users. Firstname: {}, lastname: {}, surname: {}, birthday from: {}, to: {}",
+                search.getFirstname(), search.getLastname(), search.getSurname(),
+                search.getBirthdayFrom(), search.getBirthdayTo());
+
+        return toResponse(userService.search(search, after, limit));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<List<UserChangeDTO>> getChanges(@RequestParam(required = false) String since,
+                                                          @RequestParam(required = false) Integer limit) {
+        log.info("Getting user changes. Since: {}, limit: {}", since, limit);
+
+        UserChangePageDTO page = userService.getChanges(since, limit);
+
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, page.getNextCursor())
+                .body(page.getChanges());
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Exporting all users");
 
-        return userService.getAll();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userService::export);
     }
 
     @PutMapping("/{userId}")
-    public FullUserDTO updateUser(@PathVariable Long userId, @Valid @RequestBody ShortUserDTO user) {
-        log.info("Updating user by id: {}", userId);
+    public ResponseEntity<FullUserDTO> updateUser(@PathVariable Long userId, @Valid @RequestBody ShortUserDTO user,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch) {
+        log.info("Updating user by id: {}, if-match: {}", userId, ifMatch);
 
-        return userService.update(userId, user);
+        FullUserDTO updated = userService.update(userId, user, ETags.parseIfMatch(ifMatch));
+
+        return ETags.ok(updated.getVersion()).body(updated);
     }
 
     @DeleteMapping("/{userId}")
@@ -62,4 +151,14 @@ public class UserController {
 
         userService.delete(userId);
     }
+
+    private ResponseEntity<List<ShortUserDTO>> toResponse(UserPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+
+        return response.body(page.getUsers());
+    }
 }
@@ -1,21 +1,28 @@
 package com.heydancer.exception.handler;
 
 import com.heydancer.controller.ContactController;
+import com.heydancer.controller.ContactLookupController;
 import com.heydancer.controller.ImageController;
 import com.heydancer.controller.UserController;
 import com.heydancer.exception.ForbiddenException;
 import com.heydancer.exception.NotFoundException;
+import com.heydancer.exception.PayloadTooLargeException;
+import com.heydancer.exception.PreconditionFailedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.BindException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
+import javax.validation.ConstraintViolationException;
 import java.util.Objects;
 
 @Slf4j
-@RestControllerAdvice(assignableTypes = {UserController.class, ContactController.class, ImageController.class})
+@RestControllerAdvice(assignableTypes = {UserController.class, ContactController.class,
+        ContactLookupController.class, ImageController.class})
 public class ErrorHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -41,6 +48,46 @@ public class ErrorHandler {
         return new ErrorResponse("BAD REQUEST", Objects.requireNonNull(exception.getFieldError()).getDefaultMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleBind(final BindException exception) {
+        log.error("Invalid arguments {}", exception.getMessage());
+
+        return new ErrorResponse("BAD REQUEST", Objects.requireNonNull(exception.getFieldError()).getDefaultMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleConstraintViolation(final ConstraintViolationException exception) {
+        log.error("Invalid arguments {}", exception.getMessage());
+
+        return new ErrorResponse("BAD REQUEST", exception.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ErrorResponse handlePreconditionFailed(final PreconditionFailedException exception) {
+        log.error("Precondition failed {}", exception.getMessage());
+
+        return new ErrorResponse("PRECONDITION FAILED", exception.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public ErrorResponse handlePayloadTooLarge(final PayloadTooLargeException exception) {
+        log.error("Payload too large {}", exception.getMessage());
+
+        return new ErrorResponse("PAYLOAD TOO LARGE", exception.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public ErrorResponse handleMaxUploadSizeExceeded(final MaxUploadSizeExceededException exception) {
+        log.error("Payload too large {}", exception.getMessage());
+
+        return new ErrorResponse("PAYLOAD TOO LARGE", exception.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleOtherException(final Exception exception) {
@@ -0,0 +1,80 @@
+package com.heydancer.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*Класс AsyncHttpLogWriter передает уже отформатированные записи Logbook в один фоновый поток
+через ограниченную очередь. Поток запроса никогда не ждет запись в лог: если очередь заполнена,
+запись отбрасывается и учитывается в метрике http.log.records{outcome=dropped}.
+Время записи в фоновом потоке (то, что раньше тратил поток запроса) - таймер http.log.write.*/
+@Slf4j
+public class AsyncHttpLogWriter implements HttpLogWriter {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final HttpLogWriter delegate;
+    private final ThreadPoolExecutor executor;
+    private final Counter written;
+    private final Timer writeTimer;
+
+    public AsyncHttpLogWriter(HttpLogWriter delegate, int queueCapacity, MeterRegistry meterRegistry) {
+        Counter dropped = Counter.builder("http.log.records")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+
+        this.delegate = delegate;
+        this.written = Counter.builder("http.log.records")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("http.log.write")
+                .register(meterRegistry);
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("http-log-"),
+                (task, pool) -> dropped.increment());
+    }
+
+    @Override
+    public boolean isActive() {
+        return delegate.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        executor.execute(() -> writeTimer.record(() -> {
+            try {
+                delegate.write(precorrelation, request);
+                written.increment();
+            } catch (IOException e) {
+                log.warn("HTTP log write error", e);
+            }
+        }));
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        executor.execute(() -> writeTimer.record(() -> {
+            try {
+                delegate.write(correlation, response);
+                written.increment();
+            } catch (IOException e) {
+                log.warn("HTTP log write error", e);
+            }
+        }));
+    }
+
+    /*Метод shutdown() дописывает оставшиеся в очереди записи при остановке приложения.*/
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.heydancer.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*Класс SamplingStrategy - стратегия Logbook для production-режима.
+Тела с бинарным содержимым (multipart, изображения и т.п.) не буферизуются и не пишутся в лог,
+ответы путей binaryPaths (скачивание изображений) не буферизуются еще до вызова контроллера.
+Запрос пишется в лог вместе с ответом: ответы с ошибкой (status >= 400) и медленные запросы
+(обработка заняла не меньше slowThreshold) пишутся всегда, остальные успешные - с вероятностью sampleRate.*/
+public class SamplingStrategy implements Strategy {
+    private static final int ERROR_STATUS = 400;
+    private static final List<String> BINARY_TYPES = List.of("multipart/", "image/", "audio/", "video/",
+            "application/octet-stream", "application/pdf", "application/zip");
+
+    private final double sampleRate;
+    private final Duration slowThreshold;
+    private final List<String> binaryPaths;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final Counter sampledOut;
+    private final Counter bodiesSkipped;
+
+    public SamplingStrategy(double sampleRate, Duration slowThreshold, List<String> binaryPaths,
+                            MeterRegistry meterRegistry) {
+        this.sampleRate = sampleRate;
+        this.slowThreshold = slowThreshold;
+        this.binaryPaths = binaryPaths;
+        this.sampledOut = Counter.builder("http.log.records")
+                .tag("outcome", "sampled_out")
+                .register(meterRegistry);
+        this.bodiesSkipped = Counter.builder("http.log.bodies.skipped")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        if (isBinary(request.getContentType())) {
+            bodiesSkipped.increment();
+
+            return request.withoutBody();
+        }
+
+        return request.withBody();
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        if (isBinaryPath(request.getPath())) {
+            bodiesSkipped.increment();
+
+            return response.withoutBody();
+        }
+
+        return response.withBody();
+    }
+
+    /*Запрос не пишется сразу: решение о записи принимается по статусу ответа и длительности обработки.*/
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (!isAlwaysWritten(correlation, response) && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+
+            return;
+        }
+
+        if (isBinary(response.getContentType())) {
+            bodiesSkipped.increment();
+            response = response.withoutBody();
+        }
+
+        sink.writeBoth(correlation, request, response);
+    }
+
+    private boolean isAlwaysWritten(Correlation correlation, HttpResponse response) {
+        return response.getStatus() >= ERROR_STATUS || correlation.getDuration().compareTo(slowThreshold) >= 0;
+    }
+
+    private boolean isBinary(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        String type = contentType.toLowerCase(Locale.ROOT);
+
+        return BINARY_TYPES.stream().anyMatch(type::startsWith);
+    }
+
+    private boolean isBinaryPath(String path) {
+        return binaryPaths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+}
@@ -0,0 +1,43 @@
+package com.heydancer.repository;
+
+import com.heydancer.common.model.ImageContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ImageContentRepository extends JpaRepository<ImageContent, String> {
+    @Modifying
+    @Query(value = "insert into image_content (storage_key, size, ref_count) values (:storageKey, :size, 1) " +
+            "on conflict (storage_key) do update set ref_count = image_content.ref_count + 1", nativeQuery = true)
+    void acquire(@Param("storageKey") String storageKey, @Param("size") long size);
+
+    @Modifying
+    @Query(value = "insert into image_content (storage_key, size, ref_count) values (:storageKey, :size, 0) " +
+            "on conflict (storage_key) do nothing", nativeQuery = true)
+    void registerUnreferenced(@Param("storageKey") String storageKey, @Param("size") long size);
+
+    @Modifying
+    @Query("update ImageContent c set c.refCount = c.refCount - 1 where c.storageKey = :storageKey")
+    void release(@Param("storageKey") String storageKey);
+
+    @Modifying
+    @Query(value = "update image_content c set ref_count = c.ref_count - r.refs " +
+            "from (select k.storage_key, count(*) as refs from (" +
+            "select i.storage_key from image i where i.user_id = :userId " +
+            "union all select v.storage_key from image_variant v join image i on i.id = v.image_id " +
+            "where i.user_id = :userId) k where k.storage_key is not null group by k.storage_key) r " +
+            "where c.storage_key = r.storage_key", nativeQuery = true)
+    void releaseAllByOwnerId(@Param("userId") Long userId);
+
+    @Query(value = "select storage_key from image_content where ref_count <= 0 limit :limit for update skip locked",
+            nativeQuery = true)
+    List<String> lockUnreferenced(@Param("limit") int limit);
+
+    @Modifying
+    @Query("delete from ImageContent c where c.storageKey in :storageKeys")
+    void deleteAllByStorageKeyIn(@Param("storageKeys") Collection<String> storageKeys);
+}
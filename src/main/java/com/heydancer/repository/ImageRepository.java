@@ -2,6 +2,32 @@ package com.heydancer.repository;
 
 import com.heydancer.common.model.Image;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
 
 public interface ImageRepository extends JpaRepository<Image, Long> {
+    @Query("select distinct i from Image i left join fetch i.variants where i.id = :imageId and i.user.id = :userId")
+    Optional<Image> findByIdAndOwnerId(@Param("imageId") Long imageId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "delete from image_variant v using image i where i.id = v.image_id and i.user_id = :userId",
+            nativeQuery = true)
+    void deleteAllVariantsByOwnerId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from Image i where i.user.id = :userId")
+    void deleteAllByOwnerId(@Param("userId") Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Image i where i.id = :imageId")
+    Optional<Image> findForUpdateById(@Param("imageId") Long imageId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Image i where i.id = :imageId and i.user.id = :userId")
+    Optional<Image> findForUpdateByIdAndOwnerId(@Param("imageId") Long imageId, @Param("userId") Long userId);
 }
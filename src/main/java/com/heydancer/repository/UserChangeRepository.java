@@ -0,0 +1,24 @@
+package com.heydancer.repository;
+
+import com.heydancer.common.dto.UserChangeDTO;
+import com.heydancer.common.model.UserChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserChangeRepository extends JpaRepository<UserChange, Long>, UserChangeUpsertRepository {
+    @Query(value = "select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)", nativeQuery = true)
+    long findVisibleBefore();
+
+    @Query("select new com.heydancer.common.dto.UserChangeDTO(c.userId, c.version, c.deleted, u.firstName, " +
+            "u.lastName, u.surname, u.birthday, u.email, u.phoneNumber) " +
+            "from UserChange c left join User u on u.id = c.userId " +
+            "where (c.version > :version or (c.version = :version and c.userId > :userId)) " +
+            "and c.version < :visibleBefore " +
+            "order by c.version, c.userId")
+    List<UserChangeDTO> findChanges(@Param("version") long version, @Param("userId") long userId,
+                                    @Param("visibleBefore") long visibleBefore, Pageable pageable);
+}
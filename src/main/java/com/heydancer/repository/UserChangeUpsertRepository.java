@@ -0,0 +1,7 @@
+package com.heydancer.repository;
+
+import java.util.Collection;
+
+public interface UserChangeUpsertRepository {
+    void upsert(Collection<Long> userIds, boolean deleted);
+}
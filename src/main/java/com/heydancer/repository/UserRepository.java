@@ -1,7 +1,90 @@
 package com.heydancer.repository;
 
+import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.model.User;
+import com.heydancer.repository.projection.ShortUserView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserSearchRepository {
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select new com.heydancer.common.dto.FullUserDTO(u.id, u.firstName, u.lastName, u.surname, u.birthday, " +
+            "u.email, u.phoneNumber, u.version) from User u where u.id = :userId")
+    Optional<FullUserDTO> findFullById(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select new com.heydancer.common.dto.FullUserDTO(u.id, u.firstName, u.lastName, u.surname, u.birthday, " +
+            "u.email, u.phoneNumber, u.version) from User u where u.id in :userIds")
+    List<FullUserDTO> findAllFullByIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("select u.id as id, u.firstName as firstName, u.lastName as lastName, u.surname as surname, " +
+            "u.birthday as birthday from User u where u.id > :after order by u.id")
+    List<ShortUserView> findPage(@Param("after") long after, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select new com.heydancer.common.dto.FullUserDTO(u.id, u.firstName, u.lastName, u.surname, u.birthday, " +
+            "u.email, u.phoneNumber, u.version) from User u order by u.id")
+    Stream<FullUserDTO> streamAll();
+
+    @Query("select u.id from User u where u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    @Query("select u.id from User u where u.phoneNumber = :phoneNumber")
+    Optional<Long> findIdByPhoneNumber(@Param("phoneNumber") String phoneNumber);
+
+    @Modifying
+    @Query("update User u set u.firstName = :firstName, u.lastName = :lastName, u.surname = :surname, " +
+            "u.birthday = :birthday, u.version = u.version + 1 where u.id = :userId")
+    int updateNames(@Param("userId") Long userId, @Param("firstName") String firstName,
+                    @Param("lastName") String lastName, @Param("surname") String surname,
+                    @Param("birthday") LocalDate birthday);
+
+    @Modifying
+    @Query("update User u set u.firstName = :firstName, u.lastName = :lastName, u.surname = :surname, " +
+            "u.birthday = :birthday, u.version = u.version + 1 where u.id = :userId and u.version = :version")
+    int updateNamesIfVersion(@Param("userId") Long userId, @Param("version") Long version,
+                             @Param("firstName") String firstName, @Param("lastName") String lastName,
+                             @Param("surname") String surname, @Param("birthday") LocalDate birthday);
+
+    @Modifying
+    @Query("delete from User u where u.id = :userId")
+    int deleteUserById(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("update User u set u.email = :email, u.phoneNumber = :phoneNumber, u.version = u.version + 1 " +
+            "where u.id = :userId and u.email is null and u.phoneNumber is null")
+    int addContacts(@Param("userId") Long userId, @Param("email") String email,
+                    @Param("phoneNumber") String phoneNumber);
+
+    @Query(value = "update usr set email = :email, phone_number = :phoneNumber, version = version + 1 " +
+            "where id = :userId and email is not null and phone_number is not null returning version",
+            nativeQuery = true)
+    Optional<Long> updateContacts(@Param("userId") Long userId, @Param("email") String email,
+                                  @Param("phoneNumber") String phoneNumber);
+
+    @Query(value = "update usr set email = :email, phone_number = :phoneNumber, version = version + 1 " +
+            "where id = :userId and version = :version and email is not null and phone_number is not null " +
+            "returning version", nativeQuery = true)
+    Optional<Long> updateContactsIfVersion(@Param("userId") Long userId, @Param("version") Long version,
+                                           @Param("email") String email, @Param("phoneNumber") String phoneNumber);
+
+    @Modifying
+    @Query("update User u set u.email = null, u.phoneNumber = null, u.version = u.version + 1 " +
+            "where u.id = :userId and (u.email is not null or u.phoneNumber is not null)")
+    int deleteContacts(@Param("userId") Long userId);
 }
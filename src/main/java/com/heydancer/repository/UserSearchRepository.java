@@ -0,0 +1,10 @@
+package com.heydancer.repository;
+
+import com.heydancer.common.dto.FullUserDTO;
+import com.heydancer.common.dto.UserSearchDTO;
+
+import java.util.List;
+
+public interface UserSearchRepository {
+    List<FullUserDTO> search(UserSearchDTO search, long after, int limit);
+}
@@ -0,0 +1,40 @@
+package com.heydancer.repository.impl;
+
+import com.heydancer.repository.UserChangeUpsertRepository;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+/*Класс UserChangeUpsertRepositoryImpl записывает изменения пользователей одним запросом insert ... on conflict.
+Список id передается одним параметром-массивом JDBC (bigint[]), а не строкой "{1,2}" с приведением типа,
+поэтому текст запроса один для любого числа id, а значения не разбираются из строки.
+Строки вставляются в порядке id, чтобы параллельные транзакции блокировали их в одном порядке.*/
+public class UserChangeUpsertRepositoryImpl implements UserChangeUpsertRepository {
+    private static final String UPSERT = "insert into user_change (user_id, version, deleted, changed_at) " +
+            "select id, cast(cast(pg_current_xact_id() as text) as bigint), ?, now() " +
+            "from unnest(?) as id order by id " +
+            "on conflict (user_id) do update set version = excluded.version, deleted = excluded.deleted, " +
+            "changed_at = excluded.changed_at";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void upsert(Collection<Long> userIds, boolean deleted) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            Array ids = connection.createArrayOf("bigint", userIds.toArray());
+
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+                statement.setBoolean(1, deleted);
+                statement.setArray(2, ids);
+                statement.executeUpdate();
+            } finally {
+                ids.free();
+            }
+        });
+    }
+}
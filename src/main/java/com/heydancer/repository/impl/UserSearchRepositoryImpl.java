@@ -0,0 +1,87 @@
+package com.heydancer.repository.impl;
+
+import com.heydancer.common.dto.FullUserDTO;
+import com.heydancer.common.dto.UserSearchDTO;
+import com.heydancer.common.model.User;
+import com.heydancer.repository.UserSearchRepository;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*Класс UserSearchRepositoryImpl строит запрос поиска пользователей через Criteria API только из заданных условий
+и читает результат сразу в FullUserDTO, без загрузки сущностей.
+Сравнение имен выполняется по lower(колонка) like, что совпадает с выражениями индексов из schema.sql:
+btree text_pattern_ops для поиска по префиксу и GIN pg_trgm для поиска по подстроке.*/
+public class UserSearchRepositoryImpl implements UserSearchRepository {
+    private static final char ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FullUserDTO> search(UserSearchDTO search, long after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FullUserDTO> query = cb.createQuery(FullUserDTO.class);
+        Root<User> user = query.from(User.class);
+        List<Predicate> predicates = new ArrayList<>();
+
+        predicates.add(cb.greaterThan(user.<Long>get("id"), after));
+        addLike(predicates, cb, user, "firstName", search.getFirstname(), search.getMatch());
+        addLike(predicates, cb, user, "lastName", search.getLastname(), search.getMatch());
+        addLike(predicates, cb, user, "surname", search.getSurname(), search.getMatch());
+
+        if (search.getBirthdayFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(user.<LocalDate>get("birthday"), search.getBirthdayFrom()));
+        }
+
+        if (search.getBirthdayTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(user.<LocalDate>get("birthday"), search.getBirthdayTo()));
+        }
+
+        query.select(cb.construct(FullUserDTO.class, user.get("id"), user.get("firstName"), user.get("lastName"),
+                        user.get("surname"), user.get("birthday"), user.get("email"), user.get("phoneNumber"),
+                        user.get("version")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(user.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private void addLike(List<Predicate> predicates, CriteriaBuilder cb, Root<User> user,
+                         String attribute, String value, UserSearchDTO.MatchMode match) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+
+        String escaped = escape(value.trim().toLowerCase(Locale.ROOT));
+        String pattern = match == UserSearchDTO.MatchMode.CONTAINS ? "%" + escaped + "%" : escaped + "%";
+
+        predicates.add(cb.like(cb.lower(user.<String>get(attribute)), pattern, ESCAPE));
+    }
+
+    private String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+
+        for (char c : value.toCharArray()) {
+            if (c == ESCAPE || c == '%' || c == '_') {
+                escaped.append(ESCAPE);
+            }
+
+            escaped.append(c);
+        }
+
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package com.heydancer.repository.projection;
+
+import java.time.LocalDate;
+
+public interface ShortUserView {
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getSurname();
+
+    LocalDate getBirthday();
+}
@@ -1,5 +1,6 @@
 package com.heydancer.service;
 
+import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.UserContactDTO;
 
 public interface ContactService {
@@ -7,7 +8,9 @@ public interface ContactService {
 
     UserContactDTO getByUserId(Long userId);
 
-    UserContactDTO update(Long userId, UserContactDTO contact);
+    UserContactDTO update(Long userId, UserContactDTO contact, Long expectedVersion);
 
     void delete(Long userId);
+
+    FullUserDTO lookup(String email, String phoneNumber);
 }
@@ -2,17 +2,25 @@ package com.heydancer.service;
 
 import com.heydancer.common.dto.ImageDTO;
 import com.heydancer.common.model.Image;
+import com.heydancer.common.model.ImageVariant;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 public interface ImageService {
 
     ImageDTO add(Long userId, MultipartFile file);
 
     Image getById(Long userId, Long imageId);
 
+    ImageVariant getVariant(Image image, Integer size);
+
+    Resource getContent(ImageVariant variant) throws IOException;
+
     ImageDTO update(Long userId, Long imageId, MultipartFile file);
 
     void delete(Long userId, Long imageId);
 
-
+    void deleteAllByUserId(Long userId);
 }
@@ -0,0 +1,7 @@
+package com.heydancer.service;
+
+import com.heydancer.common.model.Image;
+
+public interface ImageVariantService {
+    void scheduleGeneration(Image image);
+}
@@ -0,0 +1,15 @@
+package com.heydancer.service;
+
+import com.heydancer.common.dto.UserImportReportDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UserImportService {
+    UserImportReportDTO importUsers(InputStream in, Format format) throws IOException;
+
+    enum Format {
+        CSV,
+        JSONL
+    }
+}
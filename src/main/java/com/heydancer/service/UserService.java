@@ -2,17 +2,33 @@ package com.heydancer.service;
 
 import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.ShortUserDTO;
+import com.heydancer.common.dto.UserChangePageDTO;
+import com.heydancer.common.dto.UserPageDTO;
+import com.heydancer.common.dto.UserResultDTO;
+import com.heydancer.common.dto.UserSearchDTO;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface UserService {
     FullUserDTO add(ShortUserDTO shortUserDTO);
 
+    List<Long> addAll(List<ShortUserDTO> shortUserDTOs);
+
     FullUserDTO getById(Long userId);
 
-    List<ShortUserDTO> getAll();
+    UserPageDTO getAll(String after, Integer limit);
+
+    List<UserResultDTO> getAllById(List<Long> userIds, boolean withContacts);
+
+    UserPageDTO search(UserSearchDTO search, String after, Integer limit);
+
+    UserChangePageDTO getChanges(String since, Integer limit);
+
+    void export(OutputStream out) throws IOException;
 
-    FullUserDTO update(Long userId, ShortUserDTO shortUserDTO);
+    FullUserDTO update(Long userId, ShortUserDTO shortUserDTO, Long expectedVersion);
 
     void delete(Long userId);
 }
@@ -1,46 +1,77 @@
 package com.heydancer.service.impl;
 
+import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.UserContactDTO;
-import com.heydancer.common.model.User;
+import com.heydancer.common.mapper.UserMapper;
+import com.heydancer.config.CacheConfig;
+import com.heydancer.config.MetricsConfig;
 import com.heydancer.exception.ForbiddenException;
 import com.heydancer.exception.NotFoundException;
+import com.heydancer.exception.PreconditionFailedException;
 import com.heydancer.repository.UserRepository;
 import com.heydancer.service.ContactService;
+import com.heydancer.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 @Service //Аннотация указывает, что класс представляет собой сервис для реализации бизнес-логики
 @Transactional(readOnly = true) //Аннотация указывает, что методы сервиса выполняются в транзакции только для чтения
 @RequiredArgsConstructor //Аннотация генерирует конструктор с 1 параметром для каждого поля, в данном коде используется для внедрения компонентов
+@Timed(MetricsConfig.SERVICE_TIMER) //Аннотация измеряет время выполнения методов сервиса
 public class ContactServiceImpl implements ContactService {
-    private final UserRepository userRepository;
+    private static final String EMAIL_KEY = "email:";
+    private static final String PHONE_KEY = "phone:";
 
-    /*Метод add() добавляет контакты пользователя (email и phoneNumber) по его id,
-    если они еще не были добавлены ранее. Если контакты уже есть, выбрасывается исключение ForbiddenException*/
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final UserChangeTracker userChangeTracker;
+    private final UserMapper userMapper;
+    private final CacheManager cacheManager;
+
+    /*Метод add() добавляет контакты пользователя (email и phoneNumber) по его id одним UPDATE,
+    если они еще не были добавлены ранее (условие email is null and phoneNumber is null в самом запросе,
+    поэтому два параллельных запроса не могут добавить контакты дважды). Если ничего не обновлено,
+    выбрасывается NotFoundException для несуществующего пользователя или ForbiddenException, если контакты уже есть.
+    Контакты сохраняются в нормализованном виде (UserMapper.normalizeEmail() и normalizePhoneNumber()).*/
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public UserContactDTO add(Long userId, UserContactDTO contact) {
-        User user = checkUser(userId);
+        String email = userMapper.normalizeEmail(contact.getEmail());
+        String phoneNumber = userMapper.normalizePhoneNumber(contact.getPhoneNumber());
 
-        String email = contact.getEmail();
-        String phoneNumber = contact.getPhoneNumber();
+        try {
+            if (userRepository.addContacts(userId, email, phoneNumber) == 0) {
+                checkUser(userId);
 
-        if (user.getEmail() == null && user.getPhoneNumber() == null) {
-            user.setEmail(email);
-            user.setPhoneNumber(phoneNumber);
-        } else {
-            throw new ForbiddenException("Contacts have already been added");
+                throw new ForbiddenException("Contacts have already been added");
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw new ForbiddenException("Contacts are already used by another user");
         }
 
-        return contact;
+        userChangeTracker.updated(userId);
+        evictMisses(email, phoneNumber);
+
+        return UserContactDTO.builder()
+                .email(email)
+                .phoneNumber(phoneNumber)
+                .build();
     }
 
-    /*Метод getByUserId() получает контакты пользователя по его id.
+    /*Метод getByUserId() получает контакты пользователя по его id через кэшируемый UserService.getById().
     Если они не найдены, выбрасывается исключение NotFoundException.*/
     @Override
     public UserContactDTO getByUserId(Long userId) {
-        User user = checkUser(userId);
+        FullUserDTO user = userService.getById(userId);
 
         if (user.getEmail() == null && user.getPhoneNumber() == null) {
             throw new NotFoundException("Contacts not found");
@@ -52,43 +83,121 @@ public class ContactServiceImpl implements ContactService {
         return UserContactDTO.builder()
                 .email(email)
                 .phoneNumber(phoneNumber)
+                .version(user.getVersion())
                 .build();
     }
 
-    /*Метод update() обновляет контакты пользователя (email и phoneNumber) по его id, если они уже были добавлены ранее.
-    Если нет - выбрасывается исключение ForbiddenException.*/
+    /*Метод update() обновляет контакты пользователя (email и phoneNumber) по его id одним UPDATE,
+    если они уже были добавлены ранее. Если передана expectedVersion (из If-Match), строка обновляется
+    только при совпадении версии. Новая версия возвращается тем же запросом (returning version).
+    Причина неудачи выясняется чтением только если ничего не обновлено:
+    NotFoundException, ForbiddenException (контакты не добавлены) или PreconditionFailedException.*/
     @Override
     @Transactional
-    public UserContactDTO update(Long userId, UserContactDTO contact) {
-        User user = checkUser(userId);
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
+    public UserContactDTO update(Long userId, UserContactDTO contact, Long expectedVersion) {
+        String email = userMapper.normalizeEmail(contact.getEmail());
+        String phoneNumber = userMapper.normalizePhoneNumber(contact.getPhoneNumber());
+        Optional<Long> version;
+
+        try {
+            version = expectedVersion == null
+                    ? userRepository.updateContacts(userId, email, phoneNumber)
+                    : userRepository.updateContactsIfVersion(userId, expectedVersion, email, phoneNumber);
+        } catch (DataIntegrityViolationException e) {
+            throw new ForbiddenException("Contacts are already used by another user");
+        }
+
+        if (version.isEmpty()) {
+            FullUserDTO user = userRepository.findFullById(userId)
+                    .orElseThrow(() -> new NotFoundException(String.format("User not found. Id: %s", userId)));
 
-        String email = contact.getEmail();
-        String phoneNumber = contact.getPhoneNumber();
+            if (user.getEmail() == null || user.getPhoneNumber() == null) {
+                throw new ForbiddenException("Contacts have not been added yet");
+            }
 
-        if (user.getEmail() != null && user.getPhoneNumber() != null) {
-            user.setEmail(email);
-            user.setPhoneNumber(phoneNumber);
-        } else {
-            throw new ForbiddenException("Contacts have not been added yet");
+            throw new PreconditionFailedException(String.format("User has been modified. Id: %s", userId));
         }
 
-        return contact;
+        userChangeTracker.updated(userId);
+        evictMisses(email, phoneNumber);
+
+        return UserContactDTO.builder()
+                .email(email)
+                .phoneNumber(phoneNumber)
+                .version(version.get())
+                .build();
     }
 
-    /*Метод delete() удаляет все контакты пользователя (email и phoneNumber) по его id.*/
+    /*Метод delete() удаляет все контакты пользователя (email и phoneNumber) по его id одним UPDATE.
+    Если контактов уже нет, запрос ничего не меняет и существование пользователя проверяется отдельно.*/
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public void delete(Long userId) {
-        User user = checkUser(userId);
+        if (userRepository.deleteContacts(userId) == 0) {
+            checkUser(userId);
 
-        user.setEmail(null);
-        user.setPhoneNumber(null);
+            return;
+        }
+
+        userChangeTracker.updated(userId);
     }
 
-    /*Метод checkUser(long userId) проверяет существование пользователя в базе данных userRepository.
-    Если пользователь не найден выбрасывается исключение NotFoundException*/
-    private User checkUser(long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("User not found. Id: %s", userId)));
+    /*Метод lookup() находит пользователя по email или номеру телефона (должен быть задан ровно один параметр).
+    Значение нормализуется так же, как при сохранении, и ищется по уникальному индексу, а сам пользователь
+    берется из кэша UserService.getById(). Отсутствующие значения запоминаются в кэше contactMisses,
+    чтобы повторные запросы несуществующих контактов не доходили до базы данных.*/
+    @Override
+    public FullUserDTO lookup(String email, String phoneNumber) {
+        if ((email == null) == (phoneNumber == null)) {
+            throw new ForbiddenException("Exactly one of email or phone must be specified");
+        }
+
+        String value = email != null ? userMapper.normalizeEmail(email) : userMapper.normalizePhoneNumber(phoneNumber);
+
+        if (value.isEmpty()) {
+            throw new ForbiddenException("Email or phone must not be empty");
+        }
+
+        String key = (email != null ? EMAIL_KEY : PHONE_KEY) + value;
+        Cache misses = getMisses();
+
+        if (misses.get(key) != null) {
+            throw new NotFoundException("Contacts not found");
+        }
+
+        Optional<Long> userId = email != null
+                ? userRepository.findIdByEmail(value)
+                : userRepository.findIdByPhoneNumber(value);
+
+        if (userId.isEmpty()) {
+            misses.put(key, Boolean.TRUE);
+
+            throw new NotFoundException("Contacts not found");
+        }
+
+        return userService.getById(userId.get());
+    }
+
+    /*Метод evictMisses() удаляет из кэша contactMisses новые контакты пользователя.
+    Кэш транзакционный, поэтому удаление происходит после коммита.*/
+    private void evictMisses(String email, String phoneNumber) {
+        Cache misses = getMisses();
+
+        misses.evict(EMAIL_KEY + email);
+        misses.evict(PHONE_KEY + phoneNumber);
+    }
+
+    private Cache getMisses() {
+        return cacheManager.getCache(CacheConfig.CONTACT_MISSES_CACHE);
+    }
+
+    /*Метод checkUser(long userId) проверяет существование пользователя в базе данных userRepository
+    без загрузки сущности. Если пользователь не найден выбрасывается исключение NotFoundException*/
+    private void checkUser(long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException(String.format("User not found. Id: %s", userId));
+        }
     }
 }
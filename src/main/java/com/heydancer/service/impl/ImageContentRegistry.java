@@ -0,0 +1,117 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.repository.ImageContentRepository;
+import com.heydancer.storage.ImageContentCache;
+import com.heydancer.storage.ImageStorage;
+import com.heydancer.storage.StoredContent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/*Класс ImageContentRegistry ведет счетчик ссылок на содержимое в ImageStorage (таблица image_content).
+Одинаковое содержимое хранится один раз под ключом-хешем, а каждое изображение и каждый вариант
+увеличивают счетчик. Файлы без ссылок удаляются фоновой очисткой purge().*/
+@Slf4j
+@Component
+public class ImageContentRegistry {
+    private final ImageContentRepository imageContentRepository;
+    private final ImageStorage imageStorage;
+    private final ImageContentCache imageContentCache;
+    private final TransactionTemplate newTransaction;
+
+    @Value("${image.content.purge-batch-size}")
+    private int purgeBatchSize;
+
+    public ImageContentRegistry(ImageContentRepository imageContentRepository,
+                                ImageStorage imageStorage,
+                                ImageContentCache imageContentCache,
+                                PlatformTransactionManager transactionManager) {
+        this.imageContentRepository = imageContentRepository;
+        this.imageStorage = imageStorage;
+        this.imageContentCache = imageContentCache;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /*Метод stored() вызывается сразу после записи содержимого в ImageStorage в текущей транзакции.
+    Файл записывается до коммита, а строка image_content появляется только вместе с коммитом,
+    поэтому при откате транзакции файл остался бы без строки и purge() никогда бы его не нашел.
+    После отката в отдельной транзакции создается строка с нулевым счетчиком (если строки нет):
+    файл удаляет purge(), а параллельный acquire() того же содержимого просто увеличит счетчик.*/
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void stored(StoredContent content) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    discard(content);
+                }
+            }
+        });
+    }
+
+    /*Метод discard() передает содержимое без ссылок в purge(). Выполняется в отдельной транзакции,
+    поэтому его можно вызывать и после завершения транзакции, и вне ее.*/
+    public void discard(StoredContent content) {
+        try {
+            newTransaction.executeWithoutResult(status ->
+                    imageContentRepository.registerUnreferenced(content.getKey(), content.getSize()));
+        } catch (RuntimeException e) {
+            log.error("Image content discard error. Key: {}", content.getKey(), e);
+        }
+    }
+
+    /*Метод acquire() атомарно (insert ... on conflict) увеличивает счетчик ссылок на содержимое.
+    Строка остается заблокированной до коммита, поэтому purge() не может удалить файл параллельно.
+    Возвращает false, если файл успели удалить до блокировки - тогда вызывающий должен сохранить его заново.*/
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean acquire(StoredContent content) {
+        imageContentRepository.acquire(content.getKey(), content.getSize());
+
+        return imageStorage.exists(content.getKey());
+    }
+
+    /*Метод release() уменьшает счетчик ссылок. Сам файл удаляется позже в purge().*/
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String storageKey) {
+        imageContentRepository.release(storageKey);
+    }
+
+    /*Метод releaseAllByOwnerId() одним запросом уменьшает счетчики ссылок на содержимое всех изображений
+    пользователя и их вариантов. Должен вызываться до удаления строк image и image_variant.*/
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseAllByOwnerId(Long userId) {
+        imageContentRepository.releaseAllByOwnerId(userId);
+    }
+
+    /*Метод purge() пачками удаляет содержимое без ссылок. Строки блокируются (skip locked), файл удаляется
+    до удаления строки и до коммита: параллельный acquire() ждет блокировку и после нее видит,
+    что файла нет, поэтому ссылка на удаленный файл не может появиться.*/
+    @Scheduled(fixedDelayString = "${image.content.purge-delay}")
+    @Transactional
+    public void purge() {
+        List<String> storageKeys = imageContentRepository.lockUnreferenced(purgeBatchSize);
+
+        if (storageKeys.isEmpty()) {
+            return;
+        }
+
+        storageKeys.forEach(storageKey -> {
+            imageContentCache.evict(storageKey);
+            imageStorage.delete(storageKey);
+        });
+        imageContentRepository.deleteAllByStorageKeyIn(storageKeys);
+
+        log.info("Purged {} unreferenced image files", storageKeys.size());
+    }
+}
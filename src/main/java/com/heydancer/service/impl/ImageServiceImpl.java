@@ -1,31 +1,55 @@
 package com.heydancer.service.impl;
 
 import com.heydancer.common.dto.ImageDTO;
+import com.heydancer.config.MetricsConfig;
 import com.heydancer.exception.ForbiddenException;
 import com.heydancer.exception.NotFoundException;
 import com.heydancer.common.mapper.ImageMapper;
 import com.heydancer.common.model.Image;
+import com.heydancer.common.model.ImageVariant;
 import com.heydancer.common.model.User;
 import com.heydancer.repository.ImageRepository;
 import com.heydancer.repository.UserRepository;
 import com.heydancer.service.ImageService;
+import com.heydancer.service.ImageVariantService;
+import com.heydancer.storage.ImageContentCache;
+import com.heydancer.storage.ImageStorage;
+import com.heydancer.storage.StoredContent;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Service //Аннотация указывает, что класс представляет собой сервис для реализации бизнес-логики
 @Transactional(readOnly = true) //Аннотация указывает, что методы сервиса выполняются в транзакции только для чтения
 @RequiredArgsConstructor //Аннотация генерирует конструктор с 1 параметром для каждого поля, в данном коде используется для внедрения компонентов
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class ImageServiceImpl implements ImageService {
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
     private final ImageMapper imageMapper;
+    private final ImageStorage imageStorage;
+    private final ImageContentCache imageContentCache;
+    private final ImageContentRegistry imageContentRegistry;
+    private final ImageVariantService imageVariantService;
 
-    /*Метод add() добавляет изображение к пользователю и сохраняет его в базе данных.
+    @Value("${image.upload.max-size}")
+    private DataSize maxUploadSize;
+
+    /*Метод add() добавляет изображение к пользователю: содержимое потоком сохраняется в ImageStorage,
+    а в базе данных остаются только метаданные и ключ хранилища.
     Если у пользователя уже есть изображение, выбрасывается исключение ForbiddenException.
     Метод также проверяет размер файла и преобразует его в объект Image при помощи ImageMapper.*/
     @Override
@@ -40,12 +64,13 @@ public class ImageServiceImpl implements ImageService {
 
         if (file.getSize() != 0) {
             try {
-                image = imageMapper.toModel(file);
+                image = imageMapper.toModel(file, saveContent(file));
             } catch (IOException e) {
                 throw new ForbiddenException("Image save error");
             }
 
             user.addImage(image);
+            imageVariantService.scheduleGeneration(image);
         }
 
         return imageMapper.toDTO(Objects.requireNonNull(image));
@@ -57,37 +82,90 @@ public class ImageServiceImpl implements ImageService {
         return checkImageByOwner(userId, imageId);
     }
 
+    /*Метод getVariant() выбирает наименьший готовый вариант, наибольшая сторона которого не меньше size.
+    Если size не задан или подходящий вариант еще не создан, возвращается оригинал.*/
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ImageVariant getVariant(Image image, Integer size) {
+        ImageVariant original = new ImageVariant(image.getStorageKey(), image.getSize(), image.getUpdatedAt());
+
+        if (size == null) {
+            return original;
+        }
+
+        return image.getVariants().entrySet().stream()
+                .filter(entry -> entry.getKey() >= size)
+                .min(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .orElse(original);
+    }
+
+    /*Метод getContent() возвращает содержимое варианта изображения через ImageContentCache, который при промахе
+    читает его из ImageStorage. Обращения к базе данных нет, поэтому транзакция не открывается.*/
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Resource getContent(ImageVariant variant) throws IOException {
+        String storageKey = variant.getStorageKey();
+
+        return imageContentCache.get(storageKey, variant.getSize(), imageStorage.load(storageKey));
+    }
+
     /*Метод update() обновляет информацию об изображении (имя файла, тип содержимого, размер)
     на основании переданного MultipartFile file.
-    Метод также проверяет размер файла и преобразует его в объект Image при помощи ImageMapper.*/
+    Метод также проверяет размер файла и преобразует его в объект Image при помощи ImageMapper.
+    Строка изображения блокируется до чтения вариантов, поэтому варианты, привязанные параллельно
+    (ImageVariantServiceImpl.attach()), либо уже видны здесь и освобождаются, либо привязываются после коммита
+    и сами освобождаются из-за смены ключа.*/
     @Override
     @Transactional
     public ImageDTO update(Long userId, Long imageId, MultipartFile file) {
-        Image imageFromDb = checkImageByOwner(userId, imageId);
+        Image imageFromDb = lockImageByOwner(userId, imageId);
         Image newImage;
 
         if (file.getSize() != 0) {
             try {
-                newImage = imageMapper.toModel(file);
+                newImage = imageMapper.toModel(file, saveContent(file));
             } catch (IOException e) {
                 throw new ForbiddenException("Image update error");
             }
 
+            List<String> oldStorageKeys = getStorageKeys(imageFromDb);
+
             imageFromDb.setOriginalFileName(newImage.getOriginalFileName());
             imageFromDb.setContentType(newImage.getContentType());
             imageFromDb.setSize(newImage.getSize());
-            imageFromDb.setBytes(newImage.getBytes());
+            imageFromDb.setStorageKey(newImage.getStorageKey());
+            imageFromDb.getVariants().clear();
+
+            oldStorageKeys.forEach(imageContentRegistry::release);
+            imageVariantService.scheduleGeneration(imageFromDb);
         }
 
         return imageMapper.toDTO(imageFromDb);
     }
 
-    /*Метод delete() удаляет заданное пользователем изображение путем вызова imageRepository.delete(image).*/
+    /*Метод delete() удаляет заданное пользователем изображение путем вызова imageRepository.delete(image)
+    и освобождает содержимое изображения и его вариантов в ImageStorage.
+    Как и в update(), варианты читаются только после блокировки строки изображения.*/
     @Override
     @Transactional
     public void delete(Long userId, Long imageId) {
-        Image image = checkImageByOwner(userId, imageId);
+        Image image = lockImageByOwner(userId, imageId);
+        List<String> storageKeys = getStorageKeys(image);
         imageRepository.delete(image);
+
+        storageKeys.forEach(imageContentRegistry::release);
+    }
+
+    /*Метод deleteAllByUserId() удаляет все изображения пользователя вместе с их содержимым в ImageStorage.
+    Используется при удалении пользователя. Изображения не загружаются в память: счетчики ссылок уменьшаются,
+    а варианты и изображения удаляются тремя запросами независимо от их количества. Файлы удаляет purge().*/
+    @Override
+    @Transactional
+    public void deleteAllByUserId(Long userId) {
+        imageContentRegistry.releaseAllByOwnerId(userId);
+        imageRepository.deleteAllVariantsByOwnerId(userId);
+        imageRepository.deleteAllByOwnerId(userId);
     }
 
     /*Метод checkUser(long userId) используется для получения пользователя по id
@@ -97,17 +175,60 @@ public class ImageServiceImpl implements ImageService {
                 .orElseThrow(() -> new NotFoundException(String.format("User not found. Id: %s", userId)));
     }
 
-    /*Метод checkImageByOwner(long userId, long imageId) используется для получения объекта-изображения по id
-    через imageRepository.findById(), если он существует; если нет - выбрасывается NotFoundException.
+    /*Метод checkImageByOwner(long userId, long imageId) используется для получения метаданных изображения,
+    принадлежащего пользователю, одним запросом к строке image: владелец сравнивается по внешнему ключу,
+    пользователь не загружается, а содержимое хранится в ImageStorage и не читается.
+    Если изображение не найдено, выбрасывается NotFoundException.
     Если пользователь не является владельцем изображения, выбрасывается исключение ForbiddenException.*/
     private Image checkImageByOwner(long userId, long imageId) {
-        Image image = imageRepository.findById(imageId)
-                .orElseThrow(() -> new NotFoundException(String.format("Image not found. Id: %s", imageId)));
+        return imageRepository.findByIdAndOwnerId(imageId, userId)
+                .orElseThrow(() -> imageNotAvailable(imageId));
+    }
+
+    /*Метод lockImageByOwner(long userId, long imageId) делает то же, что checkImageByOwner(), но блокирует строку
+    изображения (select ... for update) до конца транзакции. Варианты не загружаются сразу: коллекция
+    читается лениво уже под блокировкой и не может устареть из-за параллельной привязки вариантов.*/
+    private Image lockImageByOwner(long userId, long imageId) {
+        return imageRepository.findForUpdateByIdAndOwnerId(imageId, userId)
+                .orElseThrow(() -> imageNotAvailable(imageId));
+    }
+
+    private RuntimeException imageNotAvailable(long imageId) {
+        if (imageRepository.existsById(imageId)) {
+            return new ForbiddenException("User is not the owner of the image");
+        }
+
+        return new NotFoundException(String.format("Image not found. Id: %s", imageId));
+    }
+
+    /*Метод saveContent(MultipartFile file) передает поток загружаемого файла в ImageStorage, не копируя его в память,
+    и увеличивает счетчик ссылок в ImageContentRegistry. Если такое содержимое уже есть, новый файл не создается.
+    Хранилище считает хеш и размер по ходу записи и прерывает запись при превышении maxUploadSize.*/
+    private StoredContent saveContent(MultipartFile file) throws IOException {
+        StoredContent content = storeContent(file);
 
-        if (image.getUser().getId() != userId) {
-            throw new ForbiddenException("User is not the owner of the image");
-        } else {
-            return image;
+        if (!imageContentRegistry.acquire(content)) {
+            content = storeContent(file);
         }
+
+        return content;
+    }
+
+    private StoredContent storeContent(MultipartFile file) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            StoredContent content = imageStorage.save(inputStream, maxUploadSize.toBytes());
+            imageContentRegistry.stored(content);
+
+            return content;
+        }
+    }
+
+    /*Метод getStorageKeys(Image image) возвращает ключи ImageStorage оригинала и всех вариантов изображения.*/
+    private List<String> getStorageKeys(Image image) {
+        List<String> storageKeys = new ArrayList<>();
+        storageKeys.add(image.getStorageKey());
+        image.getVariants().values().forEach(variant -> storageKeys.add(variant.getStorageKey()));
+
+        return storageKeys;
     }
 }
@@ -0,0 +1,228 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.common.model.Image;
+import com.heydancer.common.model.ImageVariant;
+import com.heydancer.config.MetricsConfig;
+import com.heydancer.repository.ImageRepository;
+import com.heydancer.service.ImageVariantService;
+import com.heydancer.storage.ImageStorage;
+import com.heydancer.storage.StoredContent;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*Класс ImageVariantServiceImpl в фоне создает уменьшенные копии изображения (по наибольшей стороне
+из image.variant.dimensions) средствами javax.imageio и сохраняет их в ImageStorage.
+Задачи выполняются ограниченным пулом потоков с ограниченной очередью: если очередь заполнена,
+задача отбрасывается, и клиенты получают оригинал.*/
+@Slf4j
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ImageVariantServiceImpl implements ImageVariantService {
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    private final ImageContentRegistry imageContentRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Integer> dimensions;
+    private final int maxDimension;
+    private final ThreadPoolExecutor executor;
+
+    public ImageVariantServiceImpl(ImageRepository imageRepository,
+                                   ImageStorage imageStorage,
+                                   ImageContentRegistry imageContentRegistry,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${image.variant.dimensions}") List<Integer> dimensions,
+                                   @Value("${image.variant.threads}") int threads,
+                                   @Value("${image.variant.queue-capacity}") int queueCapacity) {
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.imageContentRegistry = imageContentRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dimensions = dimensions;
+        this.maxDimension = Collections.max(dimensions);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-variant-"),
+                (task, pool) -> log.warn("Image variant queue is full, task discarded"));
+    }
+
+    /*Метод scheduleGeneration() ставит создание вариантов в очередь после коммита текущей транзакции,
+    чтобы фоновый поток увидел сохраненное изображение.*/
+    @Override
+    public void scheduleGeneration(Image image) {
+        String storageKey = image.getStorageKey();
+        String contentType = image.getContentType();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Long imageId = image.getId();
+                executor.execute(() -> generate(imageId, storageKey, contentType));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /*Метод generate() создает варианты и привязывает их к изображению. Если привязка не удалась
+    (транзакция откатилась), файлы вариантов передаются фоновой очистке ImageContentRegistry.*/
+    private void generate(Long imageId, String storageKey, String contentType) {
+        Map<Integer, ImageVariant> variants = Map.of();
+
+        try {
+            variants = createVariants(storageKey, contentType);
+
+            if (!variants.isEmpty()) {
+                Map<Integer, ImageVariant> created = variants;
+                transactionTemplate.executeWithoutResult(status -> attach(imageId, storageKey, created));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Image variant generation error. Image id: {}", imageId, e);
+            variants.values().forEach(variant ->
+                    imageContentRegistry.discard(new StoredContent(variant.getStorageKey(), variant.getSize())));
+        }
+    }
+
+    /*Метод attach() блокирует строку изображения, чтобы параллельное обновление не перезаписало содержимое
+    между проверкой ключа и сохранением вариантов, и регистрирует ссылки на файлы вариантов.
+    Если за это время содержимое изображения изменилось или оно было удалено, ссылки сразу освобождаются,
+    и файлы удаляет фоновая очистка ImageContentRegistry.*/
+    private void attach(Long imageId, String storageKey, Map<Integer, ImageVariant> variants) {
+        Optional<Image> image = imageRepository.findForUpdateById(imageId)
+                .filter(found -> storageKey.equals(found.getStorageKey()));
+        boolean stored = true;
+
+        for (ImageVariant variant : variants.values()) {
+            stored &= imageContentRegistry.acquire(new StoredContent(variant.getStorageKey(), variant.getSize()));
+        }
+
+        if (stored && image.isPresent()) {
+            image.get().getVariants().putAll(variants);
+        } else {
+            variants.values().forEach(variant -> imageContentRegistry.release(variant.getStorageKey()));
+        }
+    }
+
+    private Map<Integer, ImageVariant> createVariants(String storageKey, String contentType) throws IOException {
+        Map<Integer, ImageVariant> variants = new HashMap<>();
+
+        if (contentType == null || !ImageIO.getImageWritersByMIMEType(contentType).hasNext()) {
+            return variants;
+        }
+
+        BufferedImage source = read(storageKey);
+
+        if (source == null) {
+            return variants;
+        }
+
+        int sourceDimension = Math.max(source.getWidth(), source.getHeight());
+
+        for (Integer dimension : dimensions) {
+            if (dimension < sourceDimension) {
+                variants.put(dimension, write(resize(source, dimension), contentType));
+            }
+        }
+
+        return variants;
+    }
+
+    /*Метод read() декодирует изображение с прореживанием так, чтобы наибольшая сторона была не меньше
+    удвоенного наибольшего варианта: память на декодирование не зависит от разрешения оригинала.*/
+    private BufferedImage read(String storageKey) throws IOException {
+        try (InputStream inputStream = imageStorage.load(storageKey).getInputStream();
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageInputStream != null
+                    ? ImageIO.getImageReaders(imageInputStream)
+                    : Collections.emptyIterator();
+
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(imageInputStream, true, true);
+
+                int sourceDimension = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, sourceDimension / (2 * maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int dimension) {
+        double scale = (double) dimension / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return target;
+    }
+
+    private ImageVariant write(BufferedImage image, String contentType) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByMIMEType(contentType).next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+
+        StoredContent content = imageStorage.save(new ByteArrayInputStream(outputStream.toByteArray()), Long.MAX_VALUE);
+
+        return new ImageVariant(content.getKey(), content.getSize(), Instant.now());
+    }
+}
@@ -0,0 +1,81 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.repository.UserChangeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*Класс UserChangeTracker ведет журнал изменений пользователей (таблица user_change) для GET /users/changes.
+Для каждого пользователя хранится только последнее изменение: версия и признак удаления (tombstone).
+Изменения копятся в рамках транзакции и записываются одним запросом непосредственно перед коммитом.
+Версия - идентификатор транзакции (pg_current_xact_id(), PostgreSQL 13+), поэтому писатели не блокируют
+друг друга. Транзакции фиксируются не в порядке идентификаторов, поэтому читатель (UserChangeRepository.findChanges)
+отдает только версии меньше xmin своего снимка: все такие транзакции уже завершены, и изменение
+с версией меньше курсора появиться больше не может.*/
+@Component
+@RequiredArgsConstructor
+public class UserChangeTracker {
+    private final UserChangeRepository userChangeRepository;
+
+    /*Метод updated() отмечает создание или изменение пользователя в текущей транзакции.*/
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updated(Long userId) {
+        getChanges().putIfAbsent(userId, false);
+    }
+
+    /*Метод deleted() отмечает удаление пользователя в текущей транзакции.*/
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Long userId) {
+        getChanges().put(userId, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Boolean> getChanges() {
+        Map<Long, Boolean> changes = (Map<Long, Boolean>) TransactionSynchronizationManager.getResource(this);
+
+        if (changes == null) {
+            Map<Long, Boolean> created = new LinkedHashMap<>();
+
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserChangeTracker.this);
+                }
+            });
+
+            changes = created;
+        }
+
+        return changes;
+    }
+
+    private void write(Map<Long, Boolean> changes) {
+        upsert(changes, false);
+        upsert(changes, true);
+    }
+
+    private void upsert(Map<Long, Boolean> changes, boolean deleted) {
+        List<Long> userIds = changes.entrySet().stream()
+                .filter(change -> change.getValue() == deleted)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        if (!userIds.isEmpty()) {
+            userChangeRepository.upsert(userIds, deleted);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.heydancer.service.impl;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.heydancer.common.dto.FullUserDTO;
+import com.heydancer.common.dto.UserContactDTO;
+import com.heydancer.common.dto.UserImportErrorDTO;
+import com.heydancer.common.dto.UserImportReportDTO;
+import com.heydancer.common.mapper.UserMapper;
+import com.heydancer.config.MetricsConfig;
+import com.heydancer.exception.ForbiddenException;
+import com.heydancer.repository.UserRepository;
+import com.heydancer.service.UserImportService;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*Класс UserImportServiceImpl загружает пользователей из CSV (с заголовком) или JSONL потоком:
+входные данные читаются по одной записи, проверяются пачками параллельно в пуле валидации
+и сохраняются отдельным потоком-писателем пачками по users.import.batch-size, каждая в своей транзакции.
+Между чтением и записью стоит ограниченная очередь: если запись не успевает, чтение останавливается.
+Очередь пула валидации тоже ограничена: если она заполнена, пачку проверяет сам поток чтения (CallerRunsPolicy).*/
+@Slf4j
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class UserImportServiceImpl implements UserImportService {
+    private static final CompletableFuture<List<ImportRow>> END = CompletableFuture.completedFuture(Collections.emptyList());
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final UserChangeTracker userChangeTracker;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader jsonReader;
+    private final ObjectReader csvReader;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int maxErrors;
+    private final ThreadPoolExecutor validationExecutor;
+    private final ThreadPoolExecutor writerExecutor;
+
+    public UserImportServiceImpl(UserRepository userRepository,
+                                 UserMapper userMapper,
+                                 UserChangeTracker userChangeTracker,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${users.import.batch-size}") int batchSize,
+                                 @Value("${users.import.queue-capacity}") int queueCapacity,
+                                 @Value("${users.import.max-errors}") int maxErrors,
+                                 @Value("${users.import.max-concurrency}") int maxConcurrency) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.userChangeTracker = userChangeTracker;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jsonReader = objectMapper.readerFor(FullUserDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvReader = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build()
+                .readerFor(FullUserDTO.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.maxErrors = maxErrors;
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.validationExecutor = new ThreadPoolExecutor(processors, processors, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity * maxConcurrency),
+                new CustomizableThreadFactory("user-import-validation-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.writerExecutor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("user-import-writer-"));
+    }
+
+    /*Метод importUsers() читает записи из in и отправляет их пачками на валидацию. Будущие результаты валидации
+    кладутся в очередь pending емкостью users.import.queue-capacity, а писатель забирает их в порядке чтения.
+    Когда очередь заполнена, put() блокирует чтение запроса (backpressure). Память ограничена размером очереди,
+    а не размером файла. Возвращает отчет с ошибками по номерам строк и скоростью загрузки.*/
+    @Override
+    public UserImportReportDTO importUsers(InputStream in, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport(maxErrors);
+        BlockingQueue<CompletableFuture<List<ImportRow>>> pending = new ArrayBlockingQueue<>(queueCapacity);
+        Future<?> writer = writerExecutor.submit(() -> write(pending, report));
+        ObjectReader reader = format == Format.CSV ? csvReader : jsonReader;
+
+        try (MappingIterator<FullUserDTO> rows = reader.readValues(in)) {
+            read(rows, pending, report);
+        } finally {
+            finish(pending, writer);
+        }
+
+        return report.toDTO(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationExecutor.shutdownNow();
+        writerExecutor.shutdownNow();
+    }
+
+    /*Метод read() разбирает записи по одной. Ошибка преобразования записи (например, неверная дата) попадает в отчет,
+    и чтение продолжается со следующей записи. Синтаксически поврежденный ввод прерывает чтение.*/
+    private void read(MappingIterator<FullUserDTO> rows,
+                      BlockingQueue<CompletableFuture<List<ImportRow>>> pending,
+                      ImportReport report) throws IOException {
+        List<ImportRow> chunk = new ArrayList<>(batchSize);
+
+        while (true) {
+            long line;
+
+            try {
+                if (!rows.hasNextValue()) {
+                    break;
+                }
+
+                line = rows.getParser().getTokenLocation().getLineNr();
+            } catch (JsonProcessingException e) {
+                JsonLocation location = e.getLocation();
+                report.received();
+                report.reject(location != null ? location.getLineNr() : -1, "Malformed input: " + e.getOriginalMessage());
+                break;
+            }
+
+            report.received();
+
+            try {
+                chunk.add(new ImportRow(line, rows.nextValue()));
+            } catch (JsonProcessingException e) {
+                report.reject(line, e.getOriginalMessage());
+                continue;
+            }
+
+            if (chunk.size() == batchSize) {
+                submit(chunk, pending, report);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            submit(chunk, pending, report);
+        }
+    }
+
+    private void submit(List<ImportRow> chunk,
+                        BlockingQueue<CompletableFuture<List<ImportRow>>> pending,
+                        ImportReport report) {
+        try {
+            pending.put(CompletableFuture.supplyAsync(() -> validate(chunk, report), validationExecutor));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User import interrupted", e);
+        }
+    }
+
+    /*Метод finish() сообщает писателю о конце ввода и ждет записи оставшихся пачек.*/
+    private void finish(BlockingQueue<CompletableFuture<List<ImportRow>>> pending, Future<?> writer) {
+        try {
+            pending.put(END);
+            writer.get();
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("User import failed", e.getCause());
+        }
+    }
+
+    /*Метод validate() проверяет ShortUserDTO и, если контакты заданы, UserContactDTO и нормализуемость телефона
+    каждой записи пачки и возвращает только прошедшие проверку записи.*/
+    private List<ImportRow> validate(List<ImportRow> chunk, ImportReport report) {
+        List<ImportRow> accepted = new ArrayList<>(chunk.size());
+
+        for (ImportRow row : chunk) {
+            List<String> errors = new ArrayList<>();
+
+            for (ConstraintViolation<?> violation : validator.validate(userMapper.toShortDTO(row.getUser()))) {
+                errors.add(violation.getMessage());
+            }
+
+            UserContactDTO contact = userMapper.toContactDTO(row.getUser());
+
+            if (contact != null) {
+                for (ConstraintViolation<?> violation : validator.validate(contact)) {
+                    errors.add(violation.getMessage());
+                }
+
+                try {
+                    userMapper.normalizePhoneNumber(contact.getPhoneNumber());
+                } catch (ForbiddenException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+
+            if (errors.isEmpty()) {
+                accepted.add(row);
+            } else {
+                report.reject(row.getLine(), String.join("; ", errors));
+            }
+        }
+
+        return accepted;
+    }
+
+    /*Метод write() выполняется в потоке писателя и сохраняет проверенные пачки до получения END.*/
+    private void write(BlockingQueue<CompletableFuture<List<ImportRow>>> pending, ImportReport report) {
+        try {
+            CompletableFuture<List<ImportRow>> next;
+
+            while ((next = pending.take()) != END) {
+                try {
+                    List<ImportRow> rows = next.join();
+
+                    if (!rows.isEmpty()) {
+                        save(rows, report);
+                    }
+                } catch (CompletionException e) {
+                    log.error("User import validation error", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*Метод save() сохраняет пачку в отдельной транзакции, чтобы INSERT-ы ушли JDBC-батчами,
+    а контекст персистентности очищался после каждой пачки. Если запись пачки не удалась (например, email
+    или телефон одной строки уже заняты), пачка повторяется по одной строке, и в отчет попадают только
+    строки, которые не удалось записать. Загрузка при этом продолжается.*/
+    private void save(List<ImportRow> rows, ImportReport report) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAll(rows.stream()
+                            .map(row -> userMapper.toModel(row.getUser()))
+                            .collect(Collectors.toList()))
+                    .forEach(user -> userChangeTracker.updated(user.getId())));
+            report.imported(rows.size());
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                reject(rows.get(0), e, report);
+                return;
+            }
+
+            log.warn("User import batch write error, retrying row by row: {}", e.getMessage());
+            rows.forEach(row -> save(List.of(row), report));
+        }
+    }
+
+    private void reject(ImportRow row, RuntimeException e, ImportReport report) {
+        if (e instanceof DataIntegrityViolationException) {
+            report.reject(row.getLine(), "Contacts are already used by another user");
+        } else {
+            log.error("User import row write error. Line: {}", row.getLine(), e);
+            report.reject(row.getLine(), "Write failed: " + e.getMessage());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class ImportRow {
+        private final long line;
+        private final FullUserDTO user;
+    }
+
+    /*Класс ImportReport собирает статистику из потоков чтения, валидации и записи.
+    Хранится не более maxErrors ошибок, остальные только учитываются в failed.*/
+    private static class ImportReport {
+        private final int maxErrors;
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final Queue<UserImportErrorDTO> errors = new ConcurrentLinkedQueue<>();
+
+        ImportReport(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void received() {
+            total.incrementAndGet();
+        }
+
+        void imported(int count) {
+            imported.addAndGet(count);
+        }
+
+        void reject(long line, String message) {
+            if (failed.incrementAndGet() <= maxErrors) {
+                errors.add(new UserImportErrorDTO(line, message));
+            }
+        }
+
+        UserImportReportDTO toDTO(long elapsedMillis) {
+            return UserImportReportDTO.builder()
+                    .total(total.get())
+                    .imported(imported.get())
+                    .failed(failed.get())
+                    .elapsedMillis(elapsedMillis)
+                    .rowsPerSecond(total.get() * 1000 / Math.max(elapsedMillis, 1))
+                    .errors(errors.stream()
+                            .sorted(Comparator.comparingLong(UserImportErrorDTO::getLine))
+                            .collect(Collectors.toList()))
+                    .build();
+        }
+    }
+}
@@ -1,85 +1,282 @@
 package com.heydancer.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.ShortUserDTO;
-import com.heydancer.exception.NotFoundException;
+import com.heydancer.common.dto.UserChangeDTO;
+import com.heydancer.common.dto.UserChangePageDTO;
+import com.heydancer.common.dto.UserPageDTO;
+import com.heydancer.common.dto.UserResultDTO;
+import com.heydancer.common.dto.UserSearchDTO;
+import com.heydancer.common.mapper.CursorMapper;
 import com.heydancer.common.mapper.UserMapper;
 import com.heydancer.common.model.User;
+import com.heydancer.config.CacheConfig;
+import com.heydancer.config.MetricsConfig;
+import com.heydancer.exception.ForbiddenException;
+import com.heydancer.exception.NotFoundException;
+import com.heydancer.exception.PreconditionFailedException;
+import com.heydancer.repository.UserChangeRepository;
 import com.heydancer.repository.UserRepository;
+import com.heydancer.repository.projection.ShortUserView;
+import com.heydancer.service.ImageService;
 import com.heydancer.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service //Аннотация указывает, что класс представляет собой сервис для реализации бизнес-логики
 @Transactional(readOnly = true) //Аннотация указывает, что методы сервиса выполняются в транзакции только для чтения
 @RequiredArgsConstructor
 //Аннотация генерирует конструктор с 1 параметром для каждого поля, в данном коде используется для внедрения компонентов
+@Timed(MetricsConfig.SERVICE_TIMER) //Аннотация измеряет время выполнения методов сервиса
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final ImageService imageService;
+    private final CursorMapper cursorMapper;
+    private final UserChangeTracker userChangeTracker;
+    private final UserChangeRepository userChangeRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${users.page.default-size}")
+    private int defaultPageSize;
+
+    @Value("${users.page.max-size}")
+    private int maxPageSize;
+
+    @Value("${users.batch.max-size}")
+    private int maxBatchSize;
+
+    @Value("${users.ids.max-size}")
+    private int maxIdsSize;
 
     /* Метод add() добавляет нового пользователя на основании объекта ShortUserDTO при помощи UserMapper.toModel().
      Метод сохраняет пользователя в базе данных и преобразует его обратно в FullUserDTO с помощью UserMapper.toFullDTO().*/
     @Override
     @Transactional
     public FullUserDTO add(ShortUserDTO shortUserDTO) {
-        User user = userMapper.toModel(shortUserDTO);
+        User user = userRepository.save(userMapper.toModel(shortUserDTO));
+
+        userChangeTracker.updated(user.getId());
 
-        return userMapper.toFullDTO(userRepository.save(user));
+        return userMapper.toFullDTO(user);
     }
 
-    /*Метод getById() получает объект User по заданному userId путем вызова метода checkUser().*/
+    /* Метод addAll() добавляет пользователей пачкой в одной транзакции. Id выдаются последовательностью usr_seq
+     с pooled-оптимизатором (один запрос к последовательности на 50 id), поэтому Hibernate может отправлять
+     INSERT-ы JDBC-батчами по hibernate.jdbc.batch_size. Размер пачки ограничен maxBatchSize.
+     Возвращает id созданных пользователей в порядке входного списка.*/
     @Override
+    @Transactional
+    public List<Long> addAll(List<ShortUserDTO> shortUserDTOs) {
+        if (shortUserDTOs.size() > maxBatchSize) {
+            throw new ForbiddenException(String.format("Batch is too large. Max size: %s", maxBatchSize));
+        }
+
+        List<User> users = shortUserDTOs.stream()
+                .map(userMapper::toModel)
+                .collect(Collectors.toList());
+
+        List<Long> userIds = userRepository.saveAll(users).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        userIds.forEach(userChangeTracker::updated);
+
+        return userIds;
+    }
+
+    /*Метод getById() получает FullUserDTO по заданному userId проекцией прямо из SELECT, без загрузки сущности User.
+    Если пользователь не найден, выбрасывается NotFoundException. Результат кэшируется в CacheConfig.USERS_CACHE.*/
+    @Override
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public FullUserDTO getById(Long userId) {
-        User user = checkUser(userId);
+        return userRepository.findFullById(userId)
+                .orElseThrow(() -> new NotFoundException(String.format("User not found. Id: %s", userId)));
+    }
 
-        return userMapper.toFullDTO(user);
+    /* Метод getAllById() возвращает пользователей по списку id одним запросом where id in (...).
+     Результат идет в порядке запроса (включая повторы), для отсутствующих id возвращается запись с found = false.
+     Контакты включаются только при withContacts. Количество id ограничено maxIdsSize.*/
+    @Override
+    public List<UserResultDTO> getAllById(List<Long> userIds, boolean withContacts) {
+        if (userIds.size() > maxIdsSize) {
+            throw new ForbiddenException(String.format("Too many ids. Max size: %s", maxIdsSize));
+        }
+
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, FullUserDTO> users = userRepository.findAllFullByIdIn(new LinkedHashSet<>(userIds)).stream()
+                .collect(Collectors.toMap(FullUserDTO::getId, Function.identity()));
+
+        return userIds.stream()
+                .map(userId -> users.containsKey(userId)
+                        ? userMapper.toResultDTO(users.get(userId), withContacts)
+                        : userMapper.toNotFoundResultDTO(userId))
+                .collect(Collectors.toList());
     }
 
-    /* Метод getAll() возвращает список пользователей и преобразует в List<ShortUserDTO> при помощи UserMapper.toDTOList().*/
+    /* Метод getAll() возвращает страницу пользователей с id больше курсора after (keyset-пагинация),
+     поэтому любая страница стоит столько же, сколько первая. Читаются только поля ShortUserDTO.
+     Размер страницы limit ограничен сверху maxPageSize. Запрашивается на одну запись больше,
+     чтобы узнать, есть ли следующая страница, и вернуть курсор на нее.*/
     @Override
-    public List<ShortUserDTO> getAll() {
-        return userMapper.toDTOList(userRepository.findAll());
+    public UserPageDTO getAll(String after, Integer limit) {
+        int pageSize = getPageSize(limit);
+        long afterId = after != null ? cursorMapper.decode(after) : 0;
+
+        List<ShortUserView> users = userRepository.findPage(afterId, PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = cursorMapper.encode(users.get(pageSize - 1).getId());
+        }
+
+        return new UserPageDTO(userMapper.toDTOList(users), nextCursor);
     }
 
-    /*Метод update() обновляет информацию о пользователе (Имя, Фамилия, Отчество, Дата Рождения)
-    Метод также проверяет есть ли такой пользователь в базе данных с помощью метода checkUser.
-    Метод сохраняет пользователя в базе данных и преобразует его обратно в FullUserDTO с помощью UserMapper.toFullDTO().*/
+    /* Метод search() ищет пользователей по началу или подстроке имени, фамилии, отчества (без учета регистра)
+     и диапазону дат рождения. Пагинация такая же, как в getAll(): по id после курсора after.*/
     @Override
-    @Transactional
-    public FullUserDTO update(Long userId, ShortUserDTO shortUserDTO) {
-        User user = checkUser(userId);
+    public UserPageDTO search(UserSearchDTO search, String after, Integer limit) {
+        int pageSize = getPageSize(limit);
+        long afterId = after != null ? cursorMapper.decode(after) : 0;
 
+        List<FullUserDTO> users = userRepository.search(search, afterId, pageSize + 1);
+        String nextCursor = null;
+
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = cursorMapper.encode(users.get(pageSize - 1).getId());
+        }
+
+        return new UserPageDTO(users.stream()
+                .map(userMapper::toShortDTO)
+                .collect(Collectors.toList()), nextCursor);
+    }
+
+    /* Метод getChanges() возвращает изменения пользователей после курсора since в порядке версий:
+     текущие данные для созданных и измененных пользователей и tombstone (deleted = true) для удаленных.
+     Курсор следующей страницы возвращается всегда, даже для пустой страницы, чтобы клиент продолжил с него позже.
+     Отдаются только версии транзакций, завершенных до самой старой из выполняющихся (см. UserChangeTracker),
+     поэтому длинная пишущая транзакция задерживает ленту, но не приводит к пропуску изменений.*/
+    @Override
+    public UserChangePageDTO getChanges(String since, Integer limit) {
+        int pageSize = getPageSize(limit);
+        long[] position = since != null ? cursorMapper.decodePair(since) : new long[]{0, 0};
+        long visibleBefore = userChangeRepository.findVisibleBefore();
+
+        List<UserChangeDTO> changes = userChangeRepository.findChanges(position[0], position[1], visibleBefore,
+                PageRequest.of(0, pageSize));
+
+        if (!changes.isEmpty()) {
+            UserChangeDTO last = changes.get(changes.size() - 1);
+            position = new long[]{last.getVersion(), last.getUserId()};
+        }
+
+        return new UserChangePageDTO(changes, cursorMapper.encode(position[0], position[1]));
+    }
+
+    /* Метод export() записывает всех пользователей в out в формате NDJSON (один FullUserDTO на строку).
+     Строки читаются курсором БД порциями по fetch size сразу в FullUserDTO, поэтому контекст персистентности
+     не растет и память не зависит от размера таблицы. Каждая запись сразу пишется JsonGenerator-ом
+     без промежуточного списка.*/
+    @Override
+    public void export(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(FullUserDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<FullUserDTO> users = userRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+
+            Iterator<FullUserDTO> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    /*Метод update() обновляет информацию о пользователе (Имя, Фамилия, Отчество, Дата Рождения) одним UPDATE
+    без предварительного чтения сущности и увеличивает версию. Если передана expectedVersion (из If-Match),
+    строка обновляется только при совпадении версии. Если ничего не обновлено, выбрасывается NotFoundException
+    для несуществующего пользователя или PreconditionFailedException при несовпадении версии.*/
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
+    public FullUserDTO update(Long userId, ShortUserDTO shortUserDTO, Long expectedVersion) {
         String firstName = shortUserDTO.getFirstname();
         String lastName = shortUserDTO.getLastname();
         String surname = shortUserDTO.getSurname();
         LocalDate birthday = shortUserDTO.getBirthday();
 
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setSurname(surname);
-        user.setBirthday(birthday);
+        int updated = expectedVersion == null
+                ? userRepository.updateNames(userId, firstName, lastName, surname, birthday)
+                : userRepository.updateNamesIfVersion(userId, expectedVersion, firstName, lastName, surname, birthday);
 
-        return userMapper.toFullDTO(user);
+        if (updated == 0) {
+            if (!userRepository.existsById(userId)) {
+                throw new NotFoundException(String.format("User not found. Id: %s", userId));
+            }
+
+            throw new PreconditionFailedException(String.format("User has been modified. Id: %s", userId));
+        }
+
+        userChangeTracker.updated(userId);
+
+        return userRepository.findFullById(userId)
+                .orElseThrow(() -> new NotFoundException(String.format("User not found. Id: %s", userId)));
     }
 
-    /*Метод delete() удаляет пользователя путем вызова userRepository.delete(user).*/
+    /*Метод delete() удаляет пользователя одним запросом delete без загрузки сущности и коллекции images.
+    Изображения пользователя удаляются через ImageService, чтобы освободить их содержимое в ImageStorage.
+    Если пользователь не найден, выбрасывается NotFoundException и транзакция откатывается.*/
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#userId")
     public void delete(Long userId) {
-        User user = checkUser(userId);
+        imageService.deleteAllByUserId(userId);
+
+        if (userRepository.deleteUserById(userId) == 0) {
+            throw new NotFoundException(String.format("User not found. Id: %s", userId));
+        }
 
-        userRepository.delete(user);
+        userChangeTracker.deleted(userId);
     }
 
-    /* Метод checkUser(long userId) используется для получения пользователя по id через userRepository.findById(),
-     если он существует; если нет - выбрасывается NotFoundException.*/
-    private User checkUser(long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("User not found. Id: %s", userId)));
+    private int getPageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+
+        if (limit < 1) {
+            throw new ForbiddenException("Limit must be positive");
+        }
+
+        return Math.min(limit, maxPageSize);
     }
 }
@@ -0,0 +1,86 @@
+package com.heydancer.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/*Класс ImageContentCache - кеш содержимого изображений, ограниченный суммарным объемом в байтах, а не числом записей.
+Ключ - хеш содержимого (ключ ImageStorage), поэтому записи никогда не устаревают и удаляются только
+при вытеснении или когда файл удаляется из хранилища. Вытеснение выполняет Caffeine с весом записи,
+равным ее размеру в байтах, а статистика попаданий, промахов и вытеснений публикуется через getNativeCache().
+Содержимое хранится в direct ByteBuffer (вне кучи), чтобы не увеличивать нагрузку на GC.*/
+@Component
+public class ImageContentCache {
+    private final long maxEntrySize;
+    private final boolean offHeap;
+    private final Cache<String, ByteBuffer> entries;
+    private final Policy.Eviction<String, ByteBuffer> eviction;
+
+    public ImageContentCache(@Value("${image.cache.max-size}") DataSize maxSize,
+                             @Value("${image.cache.max-entry-size}") DataSize maxEntrySize,
+                             @Value("${image.cache.off-heap}") boolean offHeap) {
+        this.maxEntrySize = Math.min(maxEntrySize.toBytes(), maxSize.toBytes());
+        this.offHeap = offHeap;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+        this.eviction = entries.policy().eviction().orElseThrow();
+    }
+
+    /*Метод get() возвращает содержимое из кеша, а при промахе читает его из source и кладет в кеш,
+    если размер записи не превышает maxEntrySize. Слишком большие файлы отдаются напрямую из source.*/
+    public Resource get(String key, long contentLength, Resource source) throws IOException {
+        ByteBuffer buffer = entries.getIfPresent(key);
+
+        if (buffer != null) {
+            return new ByteBufferResource(buffer, key);
+        }
+
+        if (contentLength > maxEntrySize) {
+            return source;
+        }
+
+        buffer = read(source, (int) contentLength);
+        entries.asMap().putIfAbsent(key, buffer);
+
+        return new ByteBufferResource(buffer, key);
+    }
+
+    public void evict(String key) {
+        entries.invalidate(key);
+    }
+
+    /*Метод getSize() возвращает суммарный объем записей в байтах.*/
+    public long getSize() {
+        return eviction.weightedSize().orElse(0);
+    }
+
+    public Cache<String, ByteBuffer> getNativeCache() {
+        return entries;
+    }
+
+    private ByteBuffer read(Resource source, int contentLength) throws IOException {
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(contentLength) : ByteBuffer.allocate(contentLength);
+
+        try (ReadableByteChannel channel = source.readableChannel()) {
+            int read;
+
+            do {
+                read = channel.read(buffer);
+            } while (read != -1 && buffer.hasRemaining());
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+}
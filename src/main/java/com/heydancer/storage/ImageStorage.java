@@ -0,0 +1,16 @@
+package com.heydancer.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImageStorage {
+    StoredContent save(InputStream inputStream, long maxSize) throws IOException;
+
+    Resource load(String key);
+
+    boolean exists(String key);
+
+    void delete(String key);
+}
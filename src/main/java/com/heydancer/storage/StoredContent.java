@@ -0,0 +1,11 @@
+package com.heydancer.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StoredContent {
+    private final String key;
+    private final long size;
+}
@@ -0,0 +1,120 @@
+package com.heydancer.storage.impl;
+
+import com.heydancer.exception.PayloadTooLargeException;
+import com.heydancer.storage.ImageStorage;
+import com.heydancer.storage.StoredContent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/*Класс FileSystemImageStorage хранит содержимое изображений в файлах на локальном диске.
+Имя файла - SHA-256 от содержимого, поэтому одинаковые файлы хранятся один раз,
+а сохраненный файл никогда не изменяется.*/
+@Slf4j
+@Component
+public class FileSystemImageStorage implements ImageStorage {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path location;
+    private final Path tempLocation;
+    private final Counter bytesWritten;
+
+    public FileSystemImageStorage(@Value("${image.storage.location}") String location,
+                                  MeterRegistry meterRegistry) throws IOException {
+        this.location = Path.of(location).toAbsolutePath().normalize();
+        this.tempLocation = this.location.resolve("tmp");
+        this.bytesWritten = Counter.builder("image.bytes.written")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Files.createDirectories(this.tempLocation);
+    }
+
+    /*Метод save() копирует поток во временный файл порциями по BUFFER_SIZE байт, по ходу считая SHA-256 и размер,
+    поэтому содержимое никогда не собирается в памяти целиком. Если размер превышает maxSize, запись прерывается
+    и выбрасывается PayloadTooLargeException. Готовый файл атомарно переносится на место, чтобы читатели
+    никогда не увидели недописанный файл.*/
+    @Override
+    public StoredContent save(InputStream inputStream, long maxSize) throws IOException {
+        MessageDigest digest = newDigest();
+        Path temp = Files.createTempFile(tempLocation, "upload", ".tmp");
+
+        try {
+            long size = 0;
+
+            try (OutputStream outputStream = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+
+                while ((read = inputStream.read(buffer)) != -1) {
+                    size += read;
+
+                    if (size > maxSize) {
+                        throw new PayloadTooLargeException(String.format("Image exceeds the limit of %s bytes", maxSize));
+                    }
+
+                    digest.update(buffer, 0, read);
+                    outputStream.write(buffer, 0, read);
+                    bytesWritten.increment(read);
+                }
+            }
+
+            String key = String.format("%064x", new BigInteger(1, digest.digest()));
+            Path target = resolve(key);
+
+            if (Files.notExists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            return new StoredContent(key, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Resource load(String key) {
+        return new FileSystemResource(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            log.error("Image file delete error. Key: {}", key, e);
+        }
+    }
+
+    /*Файлы раскладываются по подкаталогам из первых двух символов ключа, чтобы не держать все в одном каталоге.*/
+    private Path resolve(String key) {
+        return location.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Runs on every startup after Hibernate (spring.sql.init.mode=always, defer-datasource-initialization),
+-- including deployments with ddl-auto=update/validate, so every statement must be idempotent.
+create extension if not exists pg_trgm;
+create index if not exists usr_first_name_prefix_idx on usr (lower(first_name) text_pattern_ops);
+create index if not exists usr_last_name_prefix_idx on usr (lower(last_name) text_pattern_ops);
+create index if not exists usr_surname_prefix_idx on usr (lower(surname) text_pattern_ops);
+create index if not exists usr_first_name_trgm_idx on usr using gin (lower(first_name) gin_trgm_ops);
+create index if not exists usr_last_name_trgm_idx on usr using gin (lower(last_name) gin_trgm_ops);
+create index if not exists usr_surname_trgm_idx on usr using gin (lower(surname) gin_trgm_ops);
+create unique index if not exists usr_email_idx on usr (email);
+drop index if exists usr_phone_number_idx;
+create unique index if not exists usr_phone_number_uidx on usr (phone_number);
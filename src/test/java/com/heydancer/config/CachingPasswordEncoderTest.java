@@ -0,0 +1,69 @@
+package com.heydancer.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingPasswordEncoderTest {
+    private static final String HASH = "$2a$10$first";
+    private static final String ROTATED_HASH = "$2a$10$second";
+
+    private PasswordEncoder delegate;
+    private CachingPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void beforeEach() {
+        delegate = mock(PasswordEncoder.class);
+        passwordEncoder = new CachingPasswordEncoder(delegate, "maximumSize=100,expireAfterWrite=5m");
+
+        when(delegate.matches("admin", HASH)).thenReturn(true);
+    }
+
+    @Test
+    void shouldVerifyCorrectPasswordOnce() {
+        assertTrue(passwordEncoder.matches("admin", HASH));
+        assertTrue(passwordEncoder.matches("admin", HASH));
+
+        verify(delegate, times(1)).matches("admin", HASH);
+    }
+
+    @Test
+    void shouldNotCacheFailedMatch() {
+        assertFalse(passwordEncoder.matches("wrong", HASH));
+        assertFalse(passwordEncoder.matches("wrong", HASH));
+
+        verify(delegate, times(2)).matches("wrong", HASH);
+    }
+
+    @Test
+    void shouldNotMatchOtherPasswordFromCache() {
+        assertTrue(passwordEncoder.matches("admin", HASH));
+        assertFalse(passwordEncoder.matches("admin2", HASH));
+
+        verify(delegate).matches("admin2", HASH);
+    }
+
+    @Test
+    void shouldMissAfterHashRotation() {
+        assertTrue(passwordEncoder.matches("admin", HASH));
+        assertFalse(passwordEncoder.matches("admin", ROTATED_HASH));
+
+        verify(delegate).matches("admin", ROTATED_HASH);
+    }
+
+    @Test
+    void shouldDelegateNullArguments() {
+        assertFalse(passwordEncoder.matches(null, HASH));
+        assertFalse(passwordEncoder.matches("admin", null));
+
+        verify(delegate).matches(null, HASH);
+        verify(delegate).matches("admin", null);
+    }
+}
@@ -0,0 +1,43 @@
+package com.heydancer.config;
+
+import com.heydancer.logging.AsyncHttpLogWriter;
+import com.heydancer.logging.SamplingStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpLogConfigTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withUserConfiguration(HttpLogConfig.class)
+            .withPropertyValues("http.log.sample-rate=0.05", "http.log.slow-threshold=1s",
+                    "http.log.queue-capacity=100", "http.log.binary-paths=/users/*/images/**,/files/**");
+
+    @Test
+    void shouldReplaceStrategyAndWriterInProduction() {
+        contextRunner.withPropertyValues("http.log.production=true")
+                .run(context -> {
+                    assertThat(context).getBean(Strategy.class).isInstanceOf(SamplingStrategy.class);
+                    assertThat(context).getBean(HttpLogWriter.class).isInstanceOf(AsyncHttpLogWriter.class);
+                });
+    }
+
+    @Test
+    void shouldKeepDefaultsOutsideProduction() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(Strategy.class);
+            assertThat(context).doesNotHaveBean(HttpLogWriter.class);
+        });
+
+        contextRunner.withPropertyValues("http.log.production=false")
+                .run(context -> assertThat(context).doesNotHaveBean(Strategy.class));
+    }
+}
@@ -0,0 +1,122 @@
+package com.heydancer.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.heydancer.common.dto.FullUserDTO;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheTest {
+    private static final Duration EVICT_DELAY = Duration.ofMillis(100);
+
+    private UserCache userCache;
+
+    @BeforeEach
+    void beforeEach() {
+        userCache = new UserCache(CacheConfig.USERS_CACHE, Caffeine.newBuilder().recordStats().build(), false,
+                EVICT_DELAY);
+    }
+
+    @Test
+    void shouldNotReplaceNewerVersionWithOlder() {
+        userCache.put(1L, user(3L));
+        userCache.put(1L, user(2L));
+
+        assertEquals(3L, cachedVersion(1L));
+    }
+
+    @Test
+    void shouldReplaceOlderVersionWithNewer() {
+        userCache.put(1L, user(2L));
+        userCache.put(1L, user(3L));
+
+        assertEquals(3L, cachedVersion(1L));
+    }
+
+    @Test
+    void shouldReplaceWhenVersionIsUnknown() {
+        userCache.put(1L, user(3L));
+        userCache.put(1L, user(null));
+
+        assertNull(cachedVersion(1L));
+        assertNotNull(userCache.get(1L));
+    }
+
+    @Test
+    void shouldRemoveStaleValuePutAfterEvict() throws InterruptedException {
+        userCache.put(1L, user(3L));
+
+        userCache.evict(1L);
+        assertNull(userCache.get(1L));
+
+        userCache.put(1L, user(2L));
+        assertEquals(2L, cachedVersion(1L));
+
+        assertTrue(awaitEvicted(1L));
+    }
+
+    @Test
+    void shouldRepeatEvictIfPresent() throws InterruptedException {
+        assertFalse(userCache.evictIfPresent(1L));
+
+        userCache.put(1L, user(3L));
+        assertTrue(userCache.evictIfPresent(1L));
+
+        userCache.put(1L, user(2L));
+        assertTrue(awaitEvicted(1L));
+    }
+
+    @Test
+    void shouldBeBoundToCacheMetrics() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MeterBinder meterBinder = new CaffeineCacheMeterBinderProvider().getMeterBinder(userCache, Tags.empty());
+
+        assertNotNull(meterBinder);
+        meterBinder.bindTo(meterRegistry);
+
+        userCache.put(1L, user(3L));
+        userCache.get(1L);
+        userCache.get(2L);
+
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", CacheConfig.USERS_CACHE, "result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", CacheConfig.USERS_CACHE, "result", "miss")
+                .functionCounter().count());
+    }
+
+    private Long cachedVersion(Object key) {
+        return userCache.get(key, FullUserDTO.class).getVersion();
+    }
+
+    private boolean awaitEvicted(Object key) throws InterruptedException {
+        long deadline = System.nanoTime() + EVICT_DELAY.multipliedBy(50).toNanos();
+
+        while (System.nanoTime() < deadline) {
+            if (userCache.get(key) == null) {
+                return true;
+            }
+
+            Thread.sleep(EVICT_DELAY.toMillis() / 4);
+        }
+
+        return false;
+    }
+
+    private static FullUserDTO user(Long version) {
+        FullUserDTO user = new FullUserDTO();
+        user.setVersion(version);
+
+        return user;
+    }
+}
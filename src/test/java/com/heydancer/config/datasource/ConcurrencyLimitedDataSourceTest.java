@@ -0,0 +1,107 @@
+package com.heydancer.config.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitedDataSourceTest {
+    private DataSource targetDataSource;
+    private Connection targetConnection;
+    private ConcurrencyLimitedDataSource dataSource;
+
+    @BeforeEach
+    void beforeEach() throws SQLException {
+        targetDataSource = mock(DataSource.class);
+        targetConnection = mock(Connection.class);
+        when(targetDataSource.getConnection()).thenReturn(targetConnection);
+        when(targetDataSource.getConnection("user", "secret")).thenReturn(targetConnection);
+
+        dataSource = new ConcurrencyLimitedDataSource(targetDataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldFailWhenLimitReached() throws SQLException {
+        dataSource.getConnection();
+        dataSource.getConnection("user", "secret");
+
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        verify(targetDataSource, times(1)).getConnection();
+    }
+
+    @Test
+    void shouldReleasePermitOnClose() throws SQLException {
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        first.close();
+
+        dataSource.getConnection();
+        verify(targetConnection).close();
+        verify(targetDataSource, times(3)).getConnection();
+    }
+
+    @Test
+    void shouldReleasePermitOnceOnDoubleClose() throws SQLException {
+        Connection first = dataSource.getConnection();
+
+        first.close();
+        first.close();
+
+        dataSource.getConnection();
+        dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+    }
+
+    @Test
+    void shouldReleasePermitWhenTargetFails() throws SQLException {
+        SQLException failure = new SQLException("Connection refused");
+        when(targetDataSource.getConnection()).thenThrow(failure);
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(failure, assertThrows(SQLException.class, () -> dataSource.getConnection()));
+        }
+
+        dataSource.getConnection("user", "secret");
+        dataSource.getConnection("user", "secret");
+        verify(targetDataSource, times(2)).getConnection("user", "secret");
+    }
+
+    @Test
+    void shouldCompareProxyByIdentity() throws SQLException {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+
+        assertEquals(first, first);
+        assertNotEquals(first, second);
+        assertNotEquals(first, targetConnection);
+        assertEquals(System.identityHashCode(first), first.hashCode());
+        assertTrue(Set.of(first, second).contains(first));
+    }
+
+    @Test
+    void shouldForwardCallsToTarget() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        connection.setAutoCommit(false);
+        connection.commit();
+
+        verify(targetConnection).setAutoCommit(false);
+        verify(targetConnection).commit();
+    }
+}
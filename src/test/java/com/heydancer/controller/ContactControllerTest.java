@@ -15,6 +15,8 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -75,7 +77,7 @@ class ContactControllerTest {
     void shouldUpdateAndReturnContact() throws Exception {
         String userContact = objectMapper.writeValueAsString(userContactDTO);
 
-        when(contactService.update(anyLong(), any(UserContactDTO.class)))
+        when(contactService.update(anyLong(), any(UserContactDTO.class), isNull()))
                 .thenReturn(userContactDTO);
 
         mvc.perform(put("/users/1/contacts")
@@ -91,7 +93,7 @@ class ContactControllerTest {
         userContactDTO.setEmail("INCORRECT EMAIL");
         String userContact = objectMapper.writeValueAsString(userContactDTO);
 
-        when(contactService.update(1L, userContactDTO))
+        when(contactService.update(eq(1L), eq(userContactDTO), isNull()))
                 .thenThrow(new RuntimeException());
 
         mvc.perform(put("/users/1/contacts")
@@ -0,0 +1,93 @@
+package com.heydancer.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heydancer.common.dto.FullUserDTO;
+import com.heydancer.exception.ForbiddenException;
+import com.heydancer.exception.NotFoundException;
+import com.heydancer.service.ContactService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ContactLookupController.class)
+@AutoConfigureMockMvc
+@WithMockUser(username = "admin")
+class ContactLookupControllerTest {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private ContactService contactService;
+    private FullUserDTO fullUserDTO;
+
+    @BeforeEach
+    void beforeEach() {
+        fullUserDTO = FullUserDTO.builder()
+                .id(1L)
+                .firstname("firstname1")
+                .lastname("lastname1")
+                .surname("surname1")
+                .birthday(LocalDate.of(1990, 2, 13))
+                .email("test@mail.ru")
+                .phoneNumber("+79992221111")
+                .build();
+    }
+
+    @Test
+    void shouldLookupUserByEmail() throws Exception {
+        when(contactService.lookup(eq("Test@Mail.ru"), isNull()))
+                .thenReturn(fullUserDTO);
+
+        mvc.perform(get("/contacts/lookup")
+                        .param("email", "Test@Mail.ru"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(fullUserDTO)));
+    }
+
+    @Test
+    void shouldLookupUserByPhone() throws Exception {
+        when(contactService.lookup(isNull(), eq("+7 999 222-11-11")))
+                .thenReturn(fullUserDTO);
+
+        mvc.perform(get("/contacts/lookup")
+                        .param("phone", "+7 999 222-11-11"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(fullUserDTO)));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownContact() throws Exception {
+        when(contactService.lookup(eq("unknown@mail.ru"), isNull()))
+                .thenThrow(new NotFoundException("Contacts not found"));
+
+        mvc.perform(get("/contacts/lookup")
+                        .param("email", "unknown@mail.ru"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRejectLookupWithoutParameters() throws Exception {
+        when(contactService.lookup(isNull(), isNull()))
+                .thenThrow(new ForbiddenException("Exactly one of email or phone must be specified"));
+
+        mvc.perform(get("/contacts/lookup"))
+                .andExpect(status().isBadRequest());
+    }
+}
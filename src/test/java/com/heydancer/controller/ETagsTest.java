@@ -0,0 +1,59 @@
+package com.heydancer.controller;
+
+import com.heydancer.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ETagsTest {
+    @Test
+    void shouldReturnStrongETagOfVersion() {
+        ResponseEntity<Void> response = ETags.ok(3L).build();
+
+        assertEquals("\"3\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldReturnNoETagWithoutVersion() {
+        ResponseEntity<Void> response = ETags.ok(null).build();
+
+        assertNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldParseStrongETag() {
+        assertEquals(3L, ETags.parseIfMatch("\"3\""));
+        assertEquals(3L, ETags.parseIfMatch(" \"3\" "));
+    }
+
+    @Test
+    void shouldIgnoreMissingOrAnyIfMatch() {
+        assertNull(ETags.parseIfMatch(null));
+        assertNull(ETags.parseIfMatch("*"));
+        assertNull(ETags.parseIfMatch(" * "));
+    }
+
+    @Test
+    void shouldRejectWeakOrUnquotedETag() {
+        assertPreconditionFailed("W/\"3\"", "If-Match must be a strong ETag");
+        assertPreconditionFailed("3", "If-Match must be a strong ETag");
+        assertPreconditionFailed("\"", "If-Match must be a strong ETag");
+    }
+
+    @Test
+    void shouldRejectETagThatIsNotVersion() {
+        assertPreconditionFailed("\"abc\"", "If-Match does not match the current version");
+        assertPreconditionFailed("\"\"", "If-Match does not match the current version");
+        assertPreconditionFailed("\"3\", \"4\"", "If-Match does not match the current version");
+    }
+
+    private static void assertPreconditionFailed(String ifMatch, String message) {
+        PreconditionFailedException exception =
+                assertThrows(PreconditionFailedException.class, () -> ETags.parseIfMatch(ifMatch));
+
+        assertEquals(message, exception.getMessage());
+    }
+}
@@ -3,29 +3,39 @@ package com.heydancer.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heydancer.common.dto.ImageDTO;
 import com.heydancer.common.model.Image;
+import com.heydancer.common.model.ImageVariant;
+import com.heydancer.exception.PayloadTooLargeException;
 import com.heydancer.service.ImageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,6 +43,8 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -40,23 +52,42 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 @WithMockUser(username = "admin")
 class ImageControllerTest {
+    private static final String STORAGE_KEY = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String VARIANT_STORAGE_KEY = "60303ae22b998861bce3b28f33eec1be758a213c86c93c076dbe9f558c11c752";
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private ImageService imageService;
     private ImageDTO imageDTO;
+    private Image image;
+    private ImageVariant original;
+    private byte[] bytes;
 
     @BeforeEach
-    void beforeEach() {
+    void beforeEach() throws IOException {
         imageDTO = ImageDTO.builder()
                 .fileName("test.jpg")
                 .contentType("image/jpeg")
                 .size(1L)
                 .build();
+
+        bytes = Files.readAllBytes(Path.of("src/test/resources/test.jpg"));
+        image = Image.builder()
+                .originalFileName("test.jpg")
+                .contentType(MediaType.IMAGE_JPEG_VALUE)
+                .size((long) bytes.length)
+                .storageKey(STORAGE_KEY)
+                .updatedAt(Instant.parse("2023-01-01T00:00:00Z"))
+                .build();
+        original = new ImageVariant(STORAGE_KEY, (long) bytes.length, image.getUpdatedAt());
     }
 
     @Test
@@ -77,23 +108,129 @@ class ImageControllerTest {
                 .andExpect(jsonPath("$.size").value(imageDTO.getSize()));
     }
 
+    @Test
+    void shouldRejectTooLargeImage() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg",
+                "test image content".getBytes());
+
+        when(imageService.add(anyLong(), any(MultipartFile.class)))
+                .thenThrow(new PayloadTooLargeException("Image exceeds the limit of 1 bytes"));
+
+        mvc.perform(multipart("/users/2/images")
+                        .file(file)
+                        .with(csrf()))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
     @Test
     void shouldReturnUserById() throws Exception {
-        byte[] bytes = Files.readAllBytes(Path.of("src/test/resources/test.jpg"));
-        Image image = new Image();
-        image.setOriginalFileName("test.jpg");
-        image.setContentType(MediaType.IMAGE_JPEG_VALUE);
-        image.setBytes(bytes);
-        image.setSize((long) bytes.length);
+        when(imageService.getById(3L, 4L))
+                .thenReturn(image);
+        when(imageService.getVariant(image, null))
+                .thenReturn(original);
+        when(imageService.getContent(original))
+                .thenReturn(new ByteArrayResource(bytes));
+        double bytesRead = meterRegistry.get("image.bytes.read").counter().count();
 
+        mvc.perform(get("/users/3/images/4"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("fileName", "test.jpg"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + STORAGE_KEY + "\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(bytes));
+
+        assertEquals(bytesRead + bytes.length, meterRegistry.get("image.bytes.read").counter().count());
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutReadingContent() throws Exception {
         when(imageService.getById(3L, 4L))
                 .thenReturn(image);
+        when(imageService.getVariant(image, null))
+                .thenReturn(original);
 
-        MvcResult result =
-                mvc.perform(get("/users/3/images/4"))
-                        .andReturn();
+        mvc.perform(get("/users/3/images/4")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + STORAGE_KEY + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
 
-        assertEquals(HttpStatus.OK.value(), result.getResponse().getStatus());
+        verify(imageService, never())
+                .getContent(any(ImageVariant.class));
+    }
+
+    @Test
+    void shouldReturnImageVariant() throws Exception {
+        byte[] variantBytes = "variant content".getBytes();
+        ImageVariant variant = new ImageVariant(VARIANT_STORAGE_KEY, (long) variantBytes.length,
+                Instant.parse("2023-01-02T00:00:00Z"));
+
+        when(imageService.getById(3L, 4L))
+                .thenReturn(image);
+        when(imageService.getVariant(image, 128))
+                .thenReturn(variant);
+        when(imageService.getContent(variant))
+                .thenReturn(new ByteArrayResource(variantBytes));
+
+        mvc.perform(get("/users/3/images/4")
+                        .param("size", "128"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + VARIANT_STORAGE_KEY + "\""))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED,
+                        Instant.parse("2023-01-02T00:00:00Z").toEpochMilli()))
+                .andExpect(content().bytes(variantBytes));
+    }
+
+    @Test
+    void shouldNotReturnNotModifiedForVariantCreatedAfterOriginal() throws Exception {
+        byte[] variantBytes = "variant content".getBytes();
+        ImageVariant variant = new ImageVariant(VARIANT_STORAGE_KEY, (long) variantBytes.length,
+                Instant.parse("2023-01-02T00:00:00Z"));
+
+        when(imageService.getById(3L, 4L))
+                .thenReturn(image);
+        when(imageService.getVariant(image, 128))
+                .thenReturn(variant);
+        when(imageService.getContent(variant))
+                .thenReturn(new ByteArrayResource(variantBytes));
+
+        mvc.perform(get("/users/3/images/4")
+                        .param("size", "128")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Sun, 01 Jan 2023 00:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(variantBytes));
+    }
+
+    @Test
+    void shouldReturnImageRange() throws Exception {
+        when(imageService.getById(3L, 4L))
+                .thenReturn(image);
+        when(imageService.getVariant(image, null))
+                .thenReturn(original);
+        when(imageService.getContent(original))
+                .thenReturn(new ByteArrayResource(bytes));
+
+        mvc.perform(get("/users/3/images/4")
+                        .header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + bytes.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(bytes, 0, 10)));
+    }
+
+    @Test
+    void shouldReturnWholeImageWhenIfRangeDoesNotMatch() throws Exception {
+        when(imageService.getById(3L, 4L))
+                .thenReturn(image);
+        when(imageService.getVariant(image, null))
+                .thenReturn(original);
+        when(imageService.getContent(original))
+                .thenReturn(new ByteArrayResource(bytes));
+
+        mvc.perform(get("/users/3/images/4")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes));
     }
 
     @Test
@@ -132,4 +269,11 @@ class ImageControllerTest {
                 .delete(5L, 6L);
     }
 
+    @TestConfiguration
+    static class MetricsTestConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
 }
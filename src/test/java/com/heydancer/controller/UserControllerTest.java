@@ -3,7 +3,16 @@ package com.heydancer.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heydancer.common.dto.FullUserDTO;
 import com.heydancer.common.dto.ShortUserDTO;
+import com.heydancer.common.dto.UserChangeDTO;
+import com.heydancer.common.dto.UserChangePageDTO;
+import com.heydancer.common.dto.UserImportErrorDTO;
+import com.heydancer.common.dto.UserImportReportDTO;
+import com.heydancer.common.dto.UserPageDTO;
+import com.heydancer.common.dto.UserResultDTO;
+import com.heydancer.common.dto.UserSearchDTO;
 import com.heydancer.exception.NotFoundException;
+import com.heydancer.exception.PreconditionFailedException;
+import com.heydancer.service.UserImportService;
 import com.heydancer.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,25 +21,37 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -47,6 +68,9 @@ class UserControllerTest {
 
     @MockBean
     private UserService service;
+
+    @MockBean
+    private UserImportService importService;
     private ShortUserDTO firstShortUserDTO;
     private FullUserDTO firstFullUserDTO;
     private ShortUserDTO secondShortUserDTO;
@@ -91,13 +115,67 @@ class UserControllerTest {
                 .andExpect(content().json(userDTOJson));
     }
 
+    @Test
+    void shouldCreateUsersInBatch() throws Exception {
+        when(service.addAll(anyList()))
+                .thenReturn(List.of(1L, 2L));
+
+        mvc.perform(post("/users/batch")
+                        .with(csrf())
+                        .content(objectMapper.writeValueAsString(List.of(firstShortUserDTO, secondShortUserDTO)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(content().json("[1, 2]"));
+    }
+
+    @Test
+    void shouldRejectBatchWithInvalidUser() throws Exception {
+        secondShortUserDTO.setFirstname(" ");
+
+        mvc.perform(post("/users/batch")
+                        .with(csrf())
+                        .content(objectMapper.writeValueAsString(List.of(firstShortUserDTO, secondShortUserDTO)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("BAD REQUEST"));
+
+        Mockito.verify(service, Mockito.never()).addAll(anyList());
+    }
+
+    @Test
+    void shouldImportUsersFromCsv() throws Exception {
+        UserImportReportDTO report = UserImportReportDTO.builder()
+                .total(2)
+                .imported(1)
+                .failed(1)
+                .errors(List.of(new UserImportErrorDTO(3, "Firstname cannot be empty")))
+                .build();
+
+        when(importService.importUsers(any(), eq(UserImportService.Format.CSV)))
+                .thenReturn(report);
+
+        mvc.perform(post("/users/import")
+                        .with(csrf())
+                        .content("firstname,lastname,surname,birthday\n" +
+                                "firstname1,lastname1,surname1,1990-02-13\n" +
+                                ",lastname2,surname2,1980-03-15\n")
+                        .contentType(UserController.TEXT_CSV_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("Firstname cannot be empty"));
+    }
+
     @Test
     void shouldReturnAllUsers() throws Exception {
-        when(service.getAll())
-                .thenReturn(List.of(firstShortUserDTO, secondShortUserDTO));
+        when(service.getAll(isNull(), isNull()))
+                .thenReturn(new UserPageDTO(List.of(firstShortUserDTO, secondShortUserDTO), null));
 
         mvc.perform(get("/users"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(UserController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[*].firstname", containsInAnyOrder("firstname1", "firstname2")))
                 .andExpect(jsonPath("$[*].lastname", containsInAnyOrder("lastname1", "lastname2")))
@@ -107,12 +185,127 @@ class UserControllerTest {
 
     @Test
     void shouldReturnEmptyUsers() throws Exception {
+        when(service.getAll(isNull(), isNull()))
+                .thenReturn(new UserPageDTO(List.of(), null));
+
         mvc.perform(get("/users")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().json("[]"));
     }
 
+    @Test
+    void shouldReturnNextCursor() throws Exception {
+        when(service.getAll("MQ", 1))
+                .thenReturn(new UserPageDTO(List.of(secondShortUserDTO), "Mg"));
+
+        mvc.perform(get("/users")
+                        .param("after", "MQ")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "Mg"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstname").value("firstname2"));
+    }
+
+    @Test
+    void shouldReturnUsersByIdsInRequestOrder() throws Exception {
+        UserResultDTO second = UserResultDTO.builder()
+                .id(2L)
+                .found(true)
+                .firstname("firstname2")
+                .lastname("lastname2")
+                .surname("surname2")
+                .birthday(LocalDate.of(1980, 3, 15))
+                .build();
+        UserResultDTO missing = UserResultDTO.builder()
+                .id(FAKE_ID)
+                .found(false)
+                .build();
+
+        when(service.getAllById(List.of(2L, FAKE_ID), false))
+                .thenReturn(List.of(second, missing));
+
+        mvc.perform(get("/users")
+                        .param("ids", "2," + FAKE_ID)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[1].id").value(FAKE_ID))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].firstname").doesNotExist());
+    }
+
+    @Test
+    void shouldSearchUsers() throws Exception {
+        when(service.search(argThat(search -> "first".equals(search.getFirstname())
+                        && search.getMatch() == UserSearchDTO.MatchMode.CONTAINS
+                        && LocalDate.of(1985, 1, 1).equals(search.getBirthdayFrom())), isNull(), isNull()))
+                .thenReturn(new UserPageDTO(List.of(firstShortUserDTO), "MQ"));
+
+        mvc.perform(get("/users/search")
+                        .param("firstname", "first")
+                        .param("match", "CONTAINS")
+                        .param("birthdayFrom", "1985-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "MQ"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstname").value("firstname1"));
+    }
+
+    @Test
+    void shouldReturnChangesWithTombstones() throws Exception {
+        UserChangeDTO updated = UserChangeDTO.builder()
+                .userId(1L)
+                .version(7L)
+                .firstname("firstname1")
+                .lastname("lastname1")
+                .surname("surname1")
+                .birthday(LocalDate.of(1990, 2, 13))
+                .build();
+        UserChangeDTO deleted = UserChangeDTO.builder()
+                .userId(2L)
+                .version(8L)
+                .deleted(true)
+                .build();
+
+        when(service.getChanges("Ni4w", null))
+                .thenReturn(new UserChangePageDTO(List.of(updated, deleted), "OC4y"));
+
+        mvc.perform(get("/users/changes")
+                        .param("since", "Ni4w"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "OC4y"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].userId").value(1))
+                .andExpect(jsonPath("$[0].deleted").value(false))
+                .andExpect(jsonPath("$[0].firstname").value("firstname1"))
+                .andExpect(jsonPath("$[1].userId").value(2))
+                .andExpect(jsonPath("$[1].deleted").value(true))
+                .andExpect(jsonPath("$[1].firstname").doesNotExist());
+    }
+
+    @Test
+    void shouldExportUsers() throws Exception {
+        String ndjson = objectMapper.writeValueAsString(firstFullUserDTO) + "\n";
+
+        doAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write(ndjson.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(service).export(any());
+
+        MvcResult result = mvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(ndjson));
+    }
+
     @Test
     void shouldReturnUserById() throws Exception {
         String userDTOJson = objectMapper.writeValueAsString(firstFullUserDTO);
@@ -126,6 +319,20 @@ class UserControllerTest {
                 .andExpect(content().json(userDTOJson));
     }
 
+    @Test
+    void shouldReturnNotModifiedWhenETagMatches() throws Exception {
+        firstFullUserDTO.setVersion(3L);
+
+        when(service.getById(1L))
+                .thenReturn(firstFullUserDTO);
+
+        mvc.perform(get("/users/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
     @Test
     void shouldReturnAndCheckFakeId() throws Exception {
         String userDTOJson = objectMapper.writeValueAsString(firstFullUserDTO);
@@ -144,7 +351,7 @@ class UserControllerTest {
     void shouldUpdateAndReturnUser() throws Exception {
         String userDTOJson = objectMapper.writeValueAsString(firstFullUserDTO);
 
-        when(service.update(anyLong(), any(ShortUserDTO.class)))
+        when(service.update(anyLong(), any(ShortUserDTO.class), isNull()))
                 .thenReturn(firstFullUserDTO);
 
         mvc.perform(put("/users/1")
@@ -155,12 +362,41 @@ class UserControllerTest {
                 .andExpect(content().json(userDTOJson));
     }
 
+    @Test
+    void shouldUpdateWhenVersionMatches() throws Exception {
+        firstFullUserDTO.setVersion(4L);
+
+        when(service.update(1L, firstShortUserDTO, 3L))
+                .thenReturn(firstFullUserDTO);
+
+        mvc.perform(put("/users/1")
+                        .with(csrf())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content(objectMapper.writeValueAsString(firstShortUserDTO))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleVersion() throws Exception {
+        when(service.update(1L, firstShortUserDTO, 2L))
+                .thenThrow(new PreconditionFailedException("User has been modified. Id: 1"));
+
+        mvc.perform(put("/users/1")
+                        .with(csrf())
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .content(objectMapper.writeValueAsString(firstShortUserDTO))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void shouldUpdateAndCheckEmptyName() throws Exception {
         firstShortUserDTO.setFirstname("");
         String userDTOJson = objectMapper.writeValueAsString(firstShortUserDTO);
 
-        when(service.update(1L, firstShortUserDTO))
+        when(service.update(eq(1L), eq(firstShortUserDTO), isNull()))
                 .thenThrow(new RuntimeException());
 
         mvc.perform(put("/users/1")
@@ -177,7 +413,7 @@ class UserControllerTest {
         firstShortUserDTO.setLastname("");
         String userDTOJson = objectMapper.writeValueAsString(firstShortUserDTO);
 
-        when(service.update(1L, firstShortUserDTO))
+        when(service.update(eq(1L), eq(firstShortUserDTO), isNull()))
                 .thenThrow(new RuntimeException());
 
         mvc.perform(put("/users/1")
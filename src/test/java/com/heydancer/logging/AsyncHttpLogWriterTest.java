@@ -0,0 +1,114 @@
+package com.heydancer.logging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncHttpLogWriterTest {
+    private SimpleMeterRegistry meterRegistry;
+    private HttpLogWriter delegate;
+    private Precorrelation precorrelation;
+    private Correlation correlation;
+    private AsyncHttpLogWriter writer;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        delegate = mock(HttpLogWriter.class);
+        precorrelation = mock(Precorrelation.class);
+        correlation = mock(Correlation.class);
+        writer = new AsyncHttpLogWriter(delegate, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void afterEach() throws InterruptedException {
+        writer.shutdown();
+    }
+
+    @Test
+    void shouldWriteInBackground() throws IOException, InterruptedException {
+        writer.write(precorrelation, "request");
+        writer.write(correlation, "response");
+        writer.shutdown();
+
+        verify(delegate).write(precorrelation, "request");
+        verify(delegate).write(correlation, "response");
+        assertEquals(2, records("written"));
+        assertEquals(2, meterRegistry.get("http.log.write").timer().count());
+    }
+
+    @Test
+    void shouldDropRecordsWhenQueueIsFull() throws IOException, InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(delegate).write(any(Correlation.class), anyString());
+
+        writer.write(correlation, "first");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            writer.write(correlation, "queued");
+            writer.write(correlation, "dropped");
+        });
+
+        assertEquals(1, records("dropped"));
+
+        release.countDown();
+        writer.shutdown();
+
+        verify(delegate, times(2)).write(any(Correlation.class), anyString());
+        verify(delegate, never()).write(correlation, "dropped");
+        assertEquals(2, records("written"));
+    }
+
+    @Test
+    void shouldKeepWritingAfterError() throws IOException {
+        doThrow(new IOException("Disk full")).when(delegate).write(precorrelation, "first");
+        doNothing().when(delegate).write(precorrelation, "second");
+
+        writer.write(precorrelation, "first");
+        writer.write(precorrelation, "second");
+
+        verify(delegate, timeout(5000)).write(precorrelation, "second");
+    }
+
+    @Test
+    void shouldDelegateActiveCheck() {
+        when(delegate.isActive()).thenReturn(true);
+
+        assertTrue(writer.isActive());
+    }
+
+    private double records(String outcome) {
+        return meterRegistry.get("http.log.records").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,169 @@
+package com.heydancer.logging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SamplingStrategyTest {
+    private static final List<String> BINARY_PATHS = List.of("/users/*/images/**");
+    private static final Duration SLOW_THRESHOLD = Duration.ofSeconds(1);
+
+    private SimpleMeterRegistry meterRegistry;
+    private Correlation correlation;
+    private HttpRequest request;
+    private HttpResponse response;
+    private Sink sink;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        correlation = mock(Correlation.class);
+        request = mock(HttpRequest.class);
+        response = mock(HttpResponse.class);
+        sink = mock(Sink.class);
+
+        when(correlation.getDuration()).thenReturn(Duration.ofMillis(10));
+        when(response.getStatus()).thenReturn(200);
+        when(response.getContentType()).thenReturn("application/json");
+    }
+
+    @Test
+    void shouldSampleOutAllSuccessesWithZeroRate() throws IOException {
+        SamplingStrategy strategy = create(0.0);
+
+        for (int i = 0; i < 100; i++) {
+            strategy.write(correlation, request, response, sink);
+        }
+
+        verify(sink, never()).writeBoth(any(), any(), any());
+        assertEquals(100, sampledOut());
+    }
+
+    @Test
+    void shouldWriteAllSuccessesWithFullRate() throws IOException {
+        SamplingStrategy strategy = create(1.0);
+
+        for (int i = 0; i < 100; i++) {
+            strategy.write(correlation, request, response, sink);
+        }
+
+        verify(sink, times(100)).writeBoth(correlation, request, response);
+        assertEquals(0, sampledOut());
+    }
+
+    @Test
+    void shouldWriteSuccessesAtSampleRate() throws IOException {
+        SamplingStrategy strategy = create(0.5);
+
+        for (int i = 0; i < 10000; i++) {
+            strategy.write(correlation, request, response, sink);
+        }
+
+        long written = mockingDetails(sink).getInvocations().size();
+
+        assertTrue(written > 4500 && written < 5500, "Written: " + written);
+        assertEquals(10000 - written, sampledOut());
+    }
+
+    @Test
+    void shouldAlwaysWriteErrors() throws IOException {
+        SamplingStrategy strategy = create(0.0);
+
+        when(response.getStatus()).thenReturn(400, 404, 500);
+
+        for (int i = 0; i < 3; i++) {
+            strategy.write(correlation, request, response, sink);
+        }
+
+        verify(sink, times(3)).writeBoth(correlation, request, response);
+        assertEquals(0, sampledOut());
+    }
+
+    @Test
+    void shouldAlwaysWriteSlowRequests() throws IOException {
+        SamplingStrategy strategy = create(0.0);
+
+        when(correlation.getDuration()).thenReturn(SLOW_THRESHOLD, Duration.ofSeconds(5), Duration.ofMillis(999));
+
+        for (int i = 0; i < 3; i++) {
+            strategy.write(correlation, request, response, sink);
+        }
+
+        verify(sink, times(2)).writeBoth(correlation, request, response);
+        assertEquals(1, sampledOut());
+    }
+
+    @Test
+    void shouldWriteBinaryResponseWithoutBody() throws IOException {
+        SamplingStrategy strategy = create(1.0);
+        HttpResponse withoutBody = mock(HttpResponse.class);
+
+        when(response.getContentType()).thenReturn("image/png");
+        when(response.withoutBody()).thenReturn(withoutBody);
+
+        strategy.write(correlation, request, response, sink);
+
+        verify(sink).writeBoth(correlation, request, withoutBody);
+        assertEquals(1, bodiesSkipped());
+    }
+
+    @Test
+    void shouldNotBufferBinaryRequestBody() throws IOException {
+        SamplingStrategy strategy = create(1.0);
+
+        when(request.getContentType()).thenReturn("multipart/form-data; boundary=x");
+        strategy.process(request);
+        verify(request).withoutBody();
+
+        when(request.getContentType()).thenReturn("application/json");
+        strategy.process(request);
+        verify(request).withBody();
+
+        assertEquals(1, bodiesSkipped());
+    }
+
+    @Test
+    void shouldNotBufferResponseBodyOnBinaryPaths() throws IOException {
+        SamplingStrategy strategy = create(1.0);
+
+        when(request.getPath()).thenReturn("/users/1/images/2/content");
+        strategy.process(request, response);
+        verify(response).withoutBody();
+
+        when(request.getPath()).thenReturn("/users/1");
+        strategy.process(request, response);
+        verify(response).withBody();
+
+        assertEquals(1, bodiesSkipped());
+    }
+
+    private SamplingStrategy create(double sampleRate) {
+        return new SamplingStrategy(sampleRate, SLOW_THRESHOLD, BINARY_PATHS, meterRegistry);
+    }
+
+    private double sampledOut() {
+        return meterRegistry.get("http.log.records").tag("outcome", "sampled_out").counter().count();
+    }
+
+    private double bodiesSkipped() {
+        return meterRegistry.get("http.log.bodies.skipped").counter().count();
+    }
+}
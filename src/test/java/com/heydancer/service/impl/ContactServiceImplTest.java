@@ -0,0 +1,193 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.common.dto.FullUserDTO;
+import com.heydancer.common.dto.UserContactDTO;
+import com.heydancer.common.mapper.UserMapper;
+import com.heydancer.config.CacheConfig;
+import com.heydancer.exception.ForbiddenException;
+import com.heydancer.exception.NotFoundException;
+import com.heydancer.exception.PreconditionFailedException;
+import com.heydancer.repository.UserRepository;
+import com.heydancer.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContactServiceImplTest {
+    private UserRepository userRepository;
+    private UserService userService;
+    private ContactServiceImpl contactService;
+
+    @BeforeEach
+    void beforeEach() {
+        userRepository = mock(UserRepository.class);
+        userService = mock(UserService.class);
+        contactService = new ContactServiceImpl(userRepository, userService, mock(UserChangeTracker.class),
+                new UserMapper(), new ConcurrentMapCacheManager(CacheConfig.CONTACT_MISSES_CACHE));
+    }
+
+    @Test
+    void shouldLookupByNormalizedEmail() {
+        FullUserDTO user = FullUserDTO.builder().id(1L).build();
+
+        when(userRepository.findIdByEmail("ivan@mail.ru")).thenReturn(Optional.of(1L));
+        when(userService.getById(1L)).thenReturn(user);
+
+        assertSame(user, contactService.lookup(" Ivan@Mail.RU ", null));
+    }
+
+    @Test
+    void shouldLookupByNormalizedPhoneNumber() {
+        when(userRepository.findIdByPhoneNumber("+79992221111")).thenReturn(Optional.of(1L));
+
+        contactService.lookup(null, "+7 (999) 222-11-11");
+
+        verify(userService).getById(1L);
+    }
+
+    @Test
+    void shouldRequireExactlyOneParameter() {
+        assertThrows(ForbiddenException.class, () -> contactService.lookup("ivan@mail.ru", "89992221111"));
+        assertThrows(ForbiddenException.class, () -> contactService.lookup(null, null));
+    }
+
+    @Test
+    void shouldRejectValueEmptyAfterNormalization() {
+        assertThrows(ForbiddenException.class, () -> contactService.lookup(null, "( )"));
+        verify(userRepository, never()).findIdByPhoneNumber(anyString());
+    }
+
+    @Test
+    void shouldRejectPhoneNumberWithoutDigits() {
+        assertThrows(ForbiddenException.class, () -> contactService.add(1L, UserContactDTO.builder()
+                .email("ivan@mail.ru")
+                .phoneNumber("")
+                .build()));
+        assertThrows(ForbiddenException.class, () -> contactService.add(1L, UserContactDTO.builder()
+                .email("ivan@mail.ru")
+                .phoneNumber("+( )-")
+                .build()));
+
+        verify(userRepository, never()).addContacts(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldRememberMissingContact() {
+        when(userRepository.findIdByEmail("ivan@mail.ru")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> contactService.lookup("ivan@mail.ru", null));
+        assertThrows(NotFoundException.class, () -> contactService.lookup("IVAN@mail.ru", null));
+
+        verify(userRepository, times(1)).findIdByEmail("ivan@mail.ru");
+    }
+
+    @Test
+    void shouldNotShareMissesBetweenEmailAndPhone() {
+        when(userRepository.findIdByEmail("89992221111")).thenReturn(Optional.empty());
+        when(userRepository.findIdByPhoneNumber("89992221111")).thenReturn(Optional.of(1L));
+
+        assertThrows(NotFoundException.class, () -> contactService.lookup("89992221111", null));
+        contactService.lookup(null, "89992221111");
+
+        verify(userService).getById(1L);
+    }
+
+    @Test
+    void shouldForgetMissWhenContactIsAdded() {
+        when(userRepository.findIdByEmail("ivan@mail.ru")).thenReturn(Optional.empty(), Optional.of(1L));
+        when(userRepository.addContacts(1L, "ivan@mail.ru", "+79992221111")).thenReturn(1);
+
+        assertThrows(NotFoundException.class, () -> contactService.lookup("ivan@mail.ru", null));
+
+        UserContactDTO added = contactService.add(1L, UserContactDTO.builder()
+                .email(" Ivan@Mail.ru")
+                .phoneNumber("+7 999 222 11 11")
+                .build());
+        contactService.lookup("ivan@mail.ru", null);
+
+        assertEquals("ivan@mail.ru", added.getEmail());
+        assertEquals("+79992221111", added.getPhoneNumber());
+        verify(userService).getById(1L);
+    }
+
+    @Test
+    void shouldForgetMissWhenContactIsUpdated() {
+        when(userRepository.findIdByPhoneNumber("89992221111")).thenReturn(Optional.empty(), Optional.of(1L));
+        when(userRepository.updateContacts(1L, "ivan@mail.ru", "89992221111")).thenReturn(Optional.of(5L));
+
+        assertThrows(NotFoundException.class, () -> contactService.lookup(null, "89992221111"));
+
+        contactService.update(1L, UserContactDTO.builder()
+                .email("IVAN@mail.ru")
+                .phoneNumber("8 (999) 222-11-11")
+                .build(), null);
+        contactService.lookup(null, "89992221111");
+
+        verify(userService).getById(1L);
+    }
+
+    @Test
+    void shouldReturnVersionOfUpdateWithoutReadingUser() {
+        when(userRepository.updateContacts(1L, "ivan@mail.ru", "89992221111")).thenReturn(Optional.of(5L));
+
+        UserContactDTO updated = contactService.update(1L, contact(), null);
+
+        assertEquals(5L, updated.getVersion());
+        verify(userRepository, never()).findFullById(anyLong());
+    }
+
+    @Test
+    void shouldReturnVersionOfConditionalUpdate() {
+        when(userRepository.updateContactsIfVersion(1L, 4L, "ivan@mail.ru", "89992221111"))
+                .thenReturn(Optional.of(5L));
+
+        UserContactDTO updated = contactService.update(1L, contact(), 4L);
+
+        assertEquals(5L, updated.getVersion());
+        verify(userRepository, never()).findFullById(anyLong());
+    }
+
+    @Test
+    void shouldReportStaleVersion() {
+        when(userRepository.updateContactsIfVersion(1L, 4L, "ivan@mail.ru", "89992221111"))
+                .thenReturn(Optional.empty());
+        when(userRepository.findFullById(1L)).thenReturn(Optional.of(FullUserDTO.builder()
+                .id(1L)
+                .email("ivan@mail.ru")
+                .phoneNumber("89992221111")
+                .version(6L)
+                .build()));
+
+        assertThrows(PreconditionFailedException.class, () -> contactService.update(1L, contact(), 4L));
+    }
+
+    @Test
+    void shouldReportMissingContactsOrUserOnUpdate() {
+        when(userRepository.updateContacts(anyLong(), anyString(), anyString())).thenReturn(Optional.empty());
+        when(userRepository.findFullById(1L)).thenReturn(Optional.of(FullUserDTO.builder().id(1L).build()));
+        when(userRepository.findFullById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(ForbiddenException.class, () -> contactService.update(1L, contact(), null));
+        assertThrows(NotFoundException.class, () -> contactService.update(2L, contact(), null));
+    }
+
+    private static UserContactDTO contact() {
+        return UserContactDTO.builder()
+                .email("ivan@mail.ru")
+                .phoneNumber("89992221111")
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.repository.ImageContentRepository;
+import com.heydancer.storage.ImageContentCache;
+import com.heydancer.storage.ImageStorage;
+import com.heydancer.storage.StoredContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageContentRegistryTest {
+    private static final StoredContent CONTENT = new StoredContent("ab12", 4);
+
+    private ImageContentRepository imageContentRepository;
+    private ImageStorage imageStorage;
+    private ImageContentCache imageContentCache;
+    private ImageContentRegistry imageContentRegistry;
+
+    @BeforeEach
+    void beforeEach() {
+        imageContentRepository = mock(ImageContentRepository.class);
+        imageStorage = mock(ImageStorage.class);
+        imageContentCache = mock(ImageContentCache.class);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        imageContentRegistry = new ImageContentRegistry(imageContentRepository, imageStorage, imageContentCache,
+                transactionManager);
+        ReflectionTestUtils.setField(imageContentRegistry, "purgeBatchSize", 100);
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldIncrementReferenceAndReportExistingFile() {
+        when(imageStorage.exists(CONTENT.getKey())).thenReturn(true);
+
+        assertTrue(imageContentRegistry.acquire(CONTENT));
+        verify(imageContentRepository).acquire(CONTENT.getKey(), CONTENT.getSize());
+    }
+
+    @Test
+    void shouldReportFileDeletedBeforeAcquire() {
+        when(imageStorage.exists(CONTENT.getKey())).thenReturn(false);
+
+        assertFalse(imageContentRegistry.acquire(CONTENT));
+        verify(imageContentRepository).acquire(CONTENT.getKey(), CONTENT.getSize());
+    }
+
+    @Test
+    void shouldDecrementReference() {
+        imageContentRegistry.release(CONTENT.getKey());
+
+        verify(imageContentRepository).release(CONTENT.getKey());
+        verify(imageStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void shouldDeleteFileBeforeRowOnPurge() {
+        when(imageContentRepository.lockUnreferenced(100)).thenReturn(List.of("ab12", "cd34"));
+
+        imageContentRegistry.purge();
+
+        InOrder inOrder = inOrder(imageContentCache, imageStorage, imageContentRepository);
+        inOrder.verify(imageContentCache).evict("ab12");
+        inOrder.verify(imageStorage).delete("ab12");
+        inOrder.verify(imageContentCache).evict("cd34");
+        inOrder.verify(imageStorage).delete("cd34");
+        inOrder.verify(imageContentRepository).deleteAllByStorageKeyIn(List.of("ab12", "cd34"));
+    }
+
+    @Test
+    void shouldDoNothingOnPurgeWithoutUnreferencedContent() {
+        when(imageContentRepository.lockUnreferenced(anyInt())).thenReturn(List.of());
+
+        imageContentRegistry.purge();
+
+        verify(imageStorage, never()).delete(anyString());
+        verify(imageContentRepository, never()).deleteAllByStorageKeyIn(any());
+    }
+
+    @Test
+    void shouldHandContentToPurgeOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        imageContentRegistry.stored(CONTENT);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(imageContentRepository).registerUnreferenced(CONTENT.getKey(), CONTENT.getSize());
+    }
+
+    @Test
+    void shouldKeepContentOnCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        imageContentRegistry.stored(CONTENT);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(imageContentRepository, never()).registerUnreferenced(anyString(), anyLong());
+    }
+
+    @Test
+    void shouldNotThrowWhenDiscardFails() {
+        doThrow(new IllegalStateException("Connection refused"))
+                .when(imageContentRepository).registerUnreferenced(anyString(), anyLong());
+
+        imageContentRegistry.discard(CONTENT);
+
+        verify(imageContentRepository).registerUnreferenced(CONTENT.getKey(), CONTENT.getSize());
+    }
+
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,253 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.common.mapper.ImageMapper;
+import com.heydancer.common.model.Image;
+import com.heydancer.common.model.ImageVariant;
+import com.heydancer.repository.ImageRepository;
+import com.heydancer.repository.UserRepository;
+import com.heydancer.storage.ImageContentCache;
+import com.heydancer.storage.ImageStorage;
+import com.heydancer.storage.StoredContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageServiceImplTest {
+    private static final long USER_ID = 1L;
+    private static final long IMAGE_ID = 2L;
+    private static final long MAX_UPLOAD_SIZE = DataSize.ofMegabytes(1).toBytes();
+    private static final String OLD_KEY = "old";
+    private static final String NEW_KEY = "new";
+    private static final String VARIANT_KEY = "variant";
+
+    private final Semaphore rowLock = new Semaphore(1);
+    private final ThreadLocal<Image> lockedRow = new ThreadLocal<>();
+    private volatile Image committedRow;
+    private volatile Runnable onUpload = () -> {
+    };
+
+    private ImageRepository imageRepository;
+    private ImageStorage imageStorage;
+    private ImageContentRegistry imageContentRegistry;
+    private ImageVariantServiceImpl imageVariantService;
+    private ImageServiceImpl imageService;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        committedRow = Image.builder()
+                .id(IMAGE_ID)
+                .originalFileName("old.png")
+                .contentType("image/png")
+                .size(100L)
+                .storageKey(OLD_KEY)
+                .build();
+
+        imageRepository = mock(ImageRepository.class);
+        imageStorage = mock(ImageStorage.class);
+        imageContentRegistry = mock(ImageContentRegistry.class);
+
+        when(imageRepository.findForUpdateByIdAndOwnerId(IMAGE_ID, USER_ID)).thenAnswer(invocation -> lockRow());
+        when(imageRepository.findForUpdateById(IMAGE_ID)).thenAnswer(invocation -> lockRow());
+        when(imageContentRegistry.acquire(any())).thenReturn(true);
+        when(imageStorage.load(OLD_KEY)).thenReturn(new ByteArrayResource(png()));
+        when(imageStorage.save(any(), eq(Long.MAX_VALUE))).thenReturn(new StoredContent(VARIANT_KEY, 10));
+        when(imageStorage.save(any(), eq(MAX_UPLOAD_SIZE))).thenAnswer(invocation -> {
+            onUpload.run();
+            return new StoredContent(NEW_KEY, 200);
+        });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doAnswer(invocation -> {
+            commitRow();
+            return null;
+        }).when(transactionManager).commit(any());
+        doAnswer(invocation -> {
+            rollbackRow();
+            return null;
+        }).when(transactionManager).rollback(any());
+
+        imageVariantService = new ImageVariantServiceImpl(imageRepository, imageStorage, imageContentRegistry,
+                transactionManager, List.of(16), 1, 10);
+        imageService = new ImageServiceImpl(mock(UserRepository.class), imageRepository, new ImageMapper(),
+                imageStorage, mock(ImageContentCache.class), imageContentRegistry, imageVariantService);
+        ReflectionTestUtils.setField(imageService, "maxUploadSize", DataSize.ofBytes(MAX_UPLOAD_SIZE));
+    }
+
+    @AfterEach
+    void afterEach() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void shouldReleaseVariantsAttachedWhileUpdateHoldsRow() throws Exception {
+        Semaphore uploading = new Semaphore(0);
+
+        onUpload = () -> {
+            uploading.release();
+            awaitQueuedOnRow();
+        };
+
+        CompletableFuture<Void> update = CompletableFuture.runAsync(this::updateInTransaction);
+
+        assertTrue(uploading.tryAcquire(5, TimeUnit.SECONDS));
+        generateVariants();
+        update.get(5, TimeUnit.SECONDS);
+
+        verify(imageContentRegistry, timeout(5000)).release(VARIANT_KEY);
+        verify(imageContentRegistry).acquire(argThat(content -> VARIANT_KEY.equals(content.getKey())));
+        verify(imageContentRegistry).release(OLD_KEY);
+        assertEquals(NEW_KEY, committedRow.getStorageKey());
+        assertTrue(committedRow.getVariants().isEmpty());
+    }
+
+    @Test
+    void shouldReleaseVariantsAttachedBeforeUpdate() {
+        generateVariants();
+        awaitCommittedVariants();
+
+        updateInTransaction();
+
+        verify(imageContentRegistry).release(OLD_KEY);
+        verify(imageContentRegistry).release(VARIANT_KEY);
+        assertEquals(NEW_KEY, committedRow.getStorageKey());
+        assertTrue(committedRow.getVariants().isEmpty());
+    }
+
+    @Test
+    void shouldReleaseOriginalAndVariantsReadUnderLockOnDelete() {
+        committedRow.getVariants().put(16, new ImageVariant(VARIANT_KEY, 10L, Instant.now()));
+
+        imageService.delete(USER_ID, IMAGE_ID);
+        commitRow();
+
+        verify(imageRepository).delete(any(Image.class));
+        verify(imageContentRegistry).release(OLD_KEY);
+        verify(imageContentRegistry).release(VARIANT_KEY);
+    }
+
+    private void updateInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            imageService.update(USER_ID, IMAGE_ID, new MockMultipartFile("file", "new.png", "image/png",
+                    new byte[]{1, 2, 3}));
+            commitRow();
+        } finally {
+            rollbackRow();
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void generateVariants() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            imageVariantService.scheduleGeneration(copy(committedRow));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Optional<Image> lockRow() throws InterruptedException {
+        if (!rowLock.tryAcquire(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Row lock timeout");
+        }
+
+        Image row = copy(committedRow);
+        lockedRow.set(row);
+
+        return Optional.of(row);
+    }
+
+    private void commitRow() {
+        Image row = lockedRow.get();
+
+        if (row != null) {
+            committedRow = copy(row);
+            lockedRow.remove();
+            rowLock.release();
+        }
+    }
+
+    private void rollbackRow() {
+        if (lockedRow.get() != null) {
+            lockedRow.remove();
+            rowLock.release();
+        }
+    }
+
+    private void awaitQueuedOnRow() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!rowLock.hasQueuedThreads()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Variants were not attached");
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitCommittedVariants() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (committedRow.getVariants().isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Variants were not attached");
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Image copy(Image row) {
+        return Image.builder()
+                .id(row.getId())
+                .originalFileName(row.getOriginalFileName())
+                .contentType(row.getContentType())
+                .size(row.getSize())
+                .storageKey(row.getStorageKey())
+                .variants(new HashMap<>(row.getVariants()))
+                .build();
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB), "png", outputStream);
+
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package com.heydancer.service.impl;
+
+import com.heydancer.repository.UserChangeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class UserChangeTrackerTest {
+    private UserChangeRepository userChangeRepository;
+    private UserChangeTracker userChangeTracker;
+
+    @BeforeEach
+    void beforeEach() {
+        userChangeRepository = mock(UserChangeRepository.class);
+        userChangeTracker = new UserChangeTracker(userChangeRepository);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.unbindResourceIfPossible(userChangeTracker);
+    }
+
+    @Test
+    void shouldWriteChangesOnlyBeforeCommit() {
+        userChangeTracker.updated(1L);
+        userChangeTracker.updated(2L);
+
+        verify(userChangeRepository, never()).upsert(anyCollection(), anyBoolean());
+
+        commit();
+
+        verify(userChangeRepository).upsert(List.of(1L, 2L), false);
+        verifyNoMoreInteractions(userChangeRepository);
+    }
+
+    @Test
+    void shouldWriteUpdatesAndTombstonesSeparately() {
+        userChangeTracker.updated(1L);
+        userChangeTracker.deleted(2L);
+        userChangeTracker.updated(3L);
+
+        commit();
+
+        verify(userChangeRepository).upsert(List.of(1L, 3L), false);
+        verify(userChangeRepository).upsert(List.of(2L), true);
+        verifyNoMoreInteractions(userChangeRepository);
+    }
+
+    @Test
+    void shouldKeepDeletionOverLaterUpdate() {
+        userChangeTracker.updated(1L);
+        userChangeTracker.deleted(1L);
+        userChangeTracker.updated(1L);
+
+        commit();
+
+        verify(userChangeRepository).upsert(List.of(1L), true);
+        verifyNoMoreInteractions(userChangeRepository);
+    }
+
+    @Test
+    void shouldStartEmptyInNextTransaction() {
+        userChangeTracker.updated(1L);
+        commit();
+
+        assertFalse(TransactionSynchronizationManager.hasResource(userChangeTracker));
+
+        TransactionSynchronizationManager.initSynchronization();
+        userChangeTracker.deleted(2L);
+        commit();
+
+        verify(userChangeRepository).upsert(List.of(1L), false);
+        verify(userChangeRepository).upsert(List.of(2L), true);
+        verifyNoMoreInteractions(userChangeRepository);
+    }
+
+    @Test
+    void shouldNotWriteOnRollback() {
+        userChangeTracker.updated(1L);
+
+        complete(List.copyOf(TransactionSynchronizationManager.getSynchronizations()),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(userChangeRepository, never()).upsert(anyCollection(), anyBoolean());
+        assertFalse(TransactionSynchronizationManager.hasResource(userChangeTracker));
+    }
+
+    private void commit() {
+        List<TransactionSynchronization> synchronizations =
+                List.copyOf(TransactionSynchronizationManager.getSynchronizations());
+
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        complete(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void complete(List<TransactionSynchronization> synchronizations, int status) {
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,163 @@
+package com.heydancer.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.heydancer.common.dto.UserImportErrorDTO;
+import com.heydancer.common.dto.UserImportReportDTO;
+import com.heydancer.common.mapper.UserMapper;
+import com.heydancer.common.model.User;
+import com.heydancer.repository.UserRepository;
+import com.heydancer.service.UserImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceImplTest {
+    private static final String TAKEN_EMAIL = "taken@mail.ru";
+
+    private UserRepository userRepository;
+    private List<Integer> savedBatchSizes;
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void beforeEach() {
+        userRepository = mock(UserRepository.class);
+        savedBatchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            savedBatchSizes.add(users.size());
+
+            if (users.stream().anyMatch(user -> TAKEN_EMAIL.equals(user.getEmail()))) {
+                throw new DataIntegrityViolationException("usr_email_idx");
+            }
+
+            return users;
+        });
+
+        userImportService = create(3);
+    }
+
+    @AfterEach
+    void afterEach() {
+        userImportService.shutdown();
+    }
+
+    @Test
+    void shouldSaveRowsInChunks() throws IOException {
+        UserImportReportDTO report = importUsers(
+                user("Ivan"), user("Petr"), user("Anna"), user("Olga"), user("Oleg"));
+
+        assertEquals(5, report.getTotal());
+        assertEquals(5, report.getImported());
+        assertEquals(0, report.getFailed());
+        assertEquals(List.of(2, 2, 1), savedBatchSizes);
+    }
+
+    @Test
+    void shouldRejectInvalidRowByLine() throws IOException {
+        UserImportReportDTO report = importUsers(user("Ivan"), user(""), user("Anna"));
+
+        assertEquals(3, report.getTotal());
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertError(report.getErrors().get(0), 2, "Firstname cannot be empty");
+    }
+
+    @Test
+    void shouldRejectUnparsableRowAndContinue() throws IOException {
+        UserImportReportDTO report = importUsers(user("Ivan"),
+                "{\"firstname\":\"Petr\",\"lastname\":\"Petrov\",\"surname\":\"Petrovich\",\"birthday\":\"not-a-date\"}",
+                user("Anna"));
+
+        assertEquals(3, report.getTotal());
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+    }
+
+    @Test
+    void shouldRejectOnlyFailingRowOfChunk() throws IOException {
+        UserImportReportDTO report = importUsers(user("Ivan"), user("Petr"),
+                userWithContacts("Anna", TAKEN_EMAIL), userWithContacts("Olga", "olga@mail.ru"));
+
+        assertEquals(4, report.getTotal());
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertError(report.getErrors().get(0), 3, "Contacts are already used by another user");
+        assertEquals(List.of(2, 2, 1, 1), savedBatchSizes);
+    }
+
+    @Test
+    void shouldRejectPhoneNumberWithoutDigits() throws IOException {
+        UserImportReportDTO report = importUsers(user("Ivan"),
+                "{\"firstname\":\"Petr\",\"lastname\":\"Petrov\",\"surname\":\"Petrovich\"," +
+                        "\"birthday\":\"1990-01-14\",\"email\":\"petr@mail.ru\",\"phoneNumber\":\"( )\"}",
+                user("Anna"));
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertError(report.getErrors().get(0), 2, "Phone number must contain digits");
+        assertEquals(List.of(1, 1), savedBatchSizes);
+    }
+
+    @Test
+    void shouldCountErrorsOverLimitWithoutKeepingThem() throws IOException {
+        userImportService.shutdown();
+        userImportService = create(2);
+
+        UserImportReportDTO report = importUsers(user(""), user(""), user(""), user("Anna"));
+
+        assertEquals(1, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(2, report.getErrors().size());
+    }
+
+    private UserImportServiceImpl create(int maxErrors) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        return new UserImportServiceImpl(userRepository, new UserMapper(), mock(UserChangeTracker.class),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper().registerModule(new JavaTimeModule()), transactionManager,
+                2, 2, maxErrors, 1);
+    }
+
+    private UserImportReportDTO importUsers(String... lines) throws IOException {
+        byte[] content = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+
+        return userImportService.importUsers(new ByteArrayInputStream(content), UserImportService.Format.JSONL);
+    }
+
+    private static String user(String firstname) {
+        return String.format("{\"firstname\":\"%s\",\"lastname\":\"Petrov\",\"surname\":\"Petrovich\"," +
+                "\"birthday\":\"1990-01-14\"}", firstname);
+    }
+
+    private static String userWithContacts(String firstname, String email) {
+        return String.format("{\"firstname\":\"%s\",\"lastname\":\"Petrov\",\"surname\":\"Petrovich\"," +
+                "\"birthday\":\"1990-01-14\",\"email\":\"%s\",\"phoneNumber\":\"89992221111\"}", firstname, email);
+    }
+
+    private static void assertError(UserImportErrorDTO error, long line, String message) {
+        assertEquals(line, error.getLine());
+        assertEquals(message, error.getMessage());
+    }
+}
@@ -0,0 +1,73 @@
+package com.heydancer.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heydancer.common.dto.UserChangeDTO;
+import com.heydancer.common.dto.UserChangePageDTO;
+import com.heydancer.common.mapper.CursorMapper;
+import com.heydancer.common.mapper.UserMapper;
+import com.heydancer.repository.UserChangeRepository;
+import com.heydancer.repository.UserRepository;
+import com.heydancer.service.ImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceImplTest {
+    private final CursorMapper cursorMapper = new CursorMapper();
+
+    private UserChangeRepository userChangeRepository;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void beforeEach() {
+        userChangeRepository = mock(UserChangeRepository.class);
+        userService = new UserServiceImpl(mock(UserRepository.class), new UserMapper(), mock(ImageService.class),
+                cursorMapper, mock(UserChangeTracker.class), userChangeRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(userService, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(userService, "maxPageSize", 500);
+    }
+
+    @Test
+    void shouldReadChangesOnlyBelowOldestRunningTransaction() {
+        when(userChangeRepository.findVisibleBefore()).thenReturn(700L);
+
+        userService.getChanges(cursorMapper.encode(600, 3), 10);
+
+        verify(userChangeRepository).findChanges(600, 3, 700, PageRequest.of(0, 10));
+    }
+
+    @Test
+    void shouldContinueAfterLastChangeOfPage() {
+        when(userChangeRepository.findVisibleBefore()).thenReturn(700L);
+        when(userChangeRepository.findChanges(anyLong(), anyLong(), anyLong(), any())).thenReturn(List.of(
+                UserChangeDTO.builder().userId(5).version(610).build(),
+                UserChangeDTO.builder().userId(2).version(650).build()));
+
+        UserChangePageDTO page = userService.getChanges(null, null);
+
+        verify(userChangeRepository).findChanges(0, 0, 700, PageRequest.of(0, 50));
+        assertEquals(2, page.getChanges().size());
+        assertArrayEquals(new long[]{650, 2}, cursorMapper.decodePair(page.getNextCursor()));
+    }
+
+    @Test
+    void shouldKeepCursorWhenNothingIsVisibleYet() {
+        when(userChangeRepository.findVisibleBefore()).thenReturn(600L);
+        when(userChangeRepository.findChanges(anyLong(), anyLong(), anyLong(), any())).thenReturn(List.of());
+
+        UserChangePageDTO page = userService.getChanges(cursorMapper.encode(600, 3), null);
+
+        assertArrayEquals(new long[]{600, 3}, cursorMapper.decodePair(page.getNextCursor()));
+    }
+}
@@ -0,0 +1,85 @@
+package com.heydancer.storage;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageContentCacheTest {
+    private ImageContentCache imageContentCache;
+
+    @BeforeEach
+    void beforeEach() {
+        imageContentCache = new ImageContentCache(DataSize.ofBytes(10), DataSize.ofBytes(6), false);
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() throws IOException {
+        byte[] content = {1, 2, 3, 4};
+
+        assertArrayEquals(content, read(get("a", content)));
+        assertArrayEquals(content, read(imageContentCache.get("a", 4, new ByteArrayResource(new byte[4]))));
+
+        CacheStats stats = imageContentCache.getNativeCache().stats();
+
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(4, size());
+    }
+
+    @Test
+    void shouldNotCacheEntryOverEntryLimit() throws IOException {
+        ByteArrayResource source = new ByteArrayResource(new byte[7]);
+
+        assertSame(source, imageContentCache.get("a", 7, source));
+        assertEquals(0, size());
+    }
+
+    @Test
+    void shouldStayWithinByteBudget() throws IOException {
+        get("a", new byte[4]);
+        get("b", new byte[4]);
+        get("c", new byte[4]);
+
+        assertTrue(size() <= 10);
+        assertEquals(1, imageContentCache.getNativeCache().stats().evictionCount());
+        assertEquals(4, imageContentCache.getNativeCache().stats().evictionWeight());
+    }
+
+    @Test
+    void shouldReleaseBytesOnEvict() throws IOException {
+        get("a", new byte[4]);
+
+        imageContentCache.evict("a");
+
+        assertEquals(0, size());
+        assertNull(imageContentCache.getNativeCache().getIfPresent("a"));
+    }
+
+    private Resource get(String key, byte[] content) throws IOException {
+        return imageContentCache.get(key, content.length, new ByteArrayResource(content));
+    }
+
+    private long size() {
+        imageContentCache.getNativeCache().cleanUp();
+
+        return imageContentCache.getSize();
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
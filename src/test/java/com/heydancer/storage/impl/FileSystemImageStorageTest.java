@@ -0,0 +1,93 @@
+package com.heydancer.storage.impl;
+
+import com.heydancer.exception.PayloadTooLargeException;
+import com.heydancer.storage.StoredContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSystemImageStorageTest {
+    private static final byte[] CONTENT = "hello".getBytes(StandardCharsets.UTF_8);
+    private static final String CONTENT_KEY = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path location;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FileSystemImageStorage imageStorage;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        imageStorage = new FileSystemImageStorage(location.toString(), meterRegistry);
+    }
+
+    @Test
+    void shouldStoreContentUnderItsHash() throws IOException {
+        StoredContent content = imageStorage.save(new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        assertEquals(CONTENT_KEY, content.getKey());
+        assertEquals(CONTENT.length, content.getSize());
+        assertTrue(Files.exists(location.resolve("2c").resolve(CONTENT_KEY)));
+        assertTrue(imageStorage.exists(CONTENT_KEY));
+
+        try (InputStream inputStream = imageStorage.load(CONTENT_KEY).getInputStream()) {
+            assertArrayEquals(CONTENT, inputStream.readAllBytes());
+        }
+
+        assertEquals(CONTENT.length, meterRegistry.get("image.bytes.written").counter().count());
+    }
+
+    @Test
+    void shouldStoreSameContentOnce() throws IOException {
+        StoredContent first = imageStorage.save(new ByteArrayInputStream(CONTENT), 1024);
+        StoredContent second = imageStorage.save(new ByteArrayInputStream(CONTENT), 1024);
+
+        assertEquals(first.getKey(), second.getKey());
+
+        try (Stream<Path> files = Files.list(location.resolve("2c"))) {
+            assertEquals(1, files.count());
+        }
+
+        assertTempEmpty();
+    }
+
+    @Test
+    void shouldRejectContentOverLimitAndLeaveNoFiles() throws IOException {
+        assertThrows(PayloadTooLargeException.class,
+                () -> imageStorage.save(new ByteArrayInputStream(CONTENT), CONTENT.length - 1));
+
+        assertFalse(imageStorage.exists(CONTENT_KEY));
+        assertTempEmpty();
+    }
+
+    @Test
+    void shouldDeleteContent() throws IOException {
+        imageStorage.save(new ByteArrayInputStream(CONTENT), CONTENT.length);
+
+        imageStorage.delete(CONTENT_KEY);
+
+        assertFalse(imageStorage.exists(CONTENT_KEY));
+    }
+
+    private void assertTempEmpty() throws IOException {
+        try (Stream<Path> files = Files.list(location.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+}